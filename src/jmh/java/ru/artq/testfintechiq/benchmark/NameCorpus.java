@@ -0,0 +1,113 @@
+package ru.artq.testfintechiq.benchmark;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Генератор пар имен, похожих на реальные заявки: 2-6 слов, латиница и кириллица,
+ * разный регистр, перестановки слов, опечатки, пропущенные слова и несвязанные имена.
+ * Генерация детерминирована по seed, чтобы прогоны можно было сравнивать.
+ */
+final class NameCorpus {
+
+    private static final String[] LATIN = {
+            "isaac", "abraham", "samuel", "ogada", "solomon", "raore", "awich", "fabian", "otieno",
+            "teresa", "wamuyu", "theri", "mwangi", "kamau", "njeri", "wanjiru", "john", "william",
+            "doe", "mary", "achieng", "odhiambo", "ochieng", "wambui", "kiprono", "chebet", "mutua",
+            "nyambura", "onyango", "akinyi", "kariuki", "muthoni", "omondi", "atieno", "kibet", "jepchirchir"
+    };
+
+    private static final String[] CYRILLIC = {
+            "иван", "иванов", "петр", "петров", "петрович", "сергей", "сергеевич", "анна", "мария",
+            "александр", "александрович", "смирнов", "кузнецов", "попова", "васильева", "николай",
+            "николаевич", "дмитрий", "федоров", "морозова", "елена", "ольга", "михайлов", "волков"
+    };
+
+    private NameCorpus() {
+    }
+
+    /**
+     * @return пары (имя заявителя, проверенное имя)
+     */
+    static String[][] pairs(int count, long seed) {
+        Random random = new Random(seed);
+        String[][] pairs = new String[count][];
+        for (int i = 0; i < count; i++) {
+            String[] pool = random.nextInt(10) < 7 ? LATIN : CYRILLIC;
+            List<String> words = randomWords(random, pool, 2 + random.nextInt(5));
+            pairs[i] = new String[]{format(random, words), format(random, variant(random, pool, words))};
+        }
+        return pairs;
+    }
+
+    private static List<String> variant(Random random, String[] pool, List<String> words) {
+        int kind = random.nextInt(100);
+        List<String> variant = new ArrayList<>(words);
+        if (kind < 25) {
+            // Те же слова в другом порядке
+            Collections.shuffle(variant, random);
+        } else if (kind < 60) {
+            // Одна-две опечатки и, возможно, другой порядок слов
+            int typos = 1 + random.nextInt(2);
+            for (int i = 0; i < typos; i++) {
+                int index = random.nextInt(variant.size());
+                variant.set(index, typo(random, variant.get(index)));
+            }
+            if (random.nextBoolean()) Collections.shuffle(variant, random);
+        } else if (kind < 75) {
+            // Пропущенное или лишнее слово
+            if (variant.size() > 2 && random.nextBoolean()) {
+                variant.remove(random.nextInt(variant.size()));
+            } else {
+                variant.add(random.nextInt(variant.size() + 1), pool[random.nextInt(pool.length)]);
+            }
+        } else {
+            // Несвязанное имя
+            variant = randomWords(random, pool, 2 + random.nextInt(5));
+        }
+        return variant;
+    }
+
+    private static String typo(Random random, String word) {
+        if (word.length() < 3) return word + word.charAt(0);
+        char[] chars = word.toCharArray();
+        int i = 1 + random.nextInt(chars.length - 2);
+        switch (random.nextInt(3)) {
+            case 0 -> {
+                char tmp = chars[i];
+                chars[i] = chars[i + 1];
+                chars[i + 1] = tmp;
+            }
+            case 1 -> chars[i] = chars[random.nextInt(chars.length)];
+            default -> {
+                return word.substring(0, i) + word.substring(i + 1);
+            }
+        }
+        return new String(chars);
+    }
+
+    private static List<String> randomWords(Random random, String[] pool, int count) {
+        List<String> words = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            words.add(pool[random.nextInt(pool.length)]);
+        }
+        return words;
+    }
+
+    private static String format(Random random, List<String> words) {
+        String[] formatted = new String[words.size()];
+        for (int i = 0; i < formatted.length; i++) {
+            String word = words.get(i);
+            formatted[i] = switch (random.nextInt(3)) {
+                case 0 -> word.toUpperCase(Locale.ROOT);
+                case 1 -> Character.toUpperCase(word.charAt(0)) + word.substring(1);
+                default -> word;
+            };
+        }
+        return String.join(random.nextInt(10) == 0 ? "  " : " ", Arrays.asList(formatted));
+    }
+}
@@ -0,0 +1,141 @@
+package ru.artq.testfintechiq.benchmark;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.artq.testfintechiq.config.StopFactorProperties;
+import ru.artq.testfintechiq.config.StopFactorPropertiesFixtures;
+import ru.artq.testfintechiq.matching.NameFingerprint;
+import ru.artq.testfintechiq.model.Settings;
+import ru.artq.testfintechiq.repository.SettingsRepository;
+import ru.artq.testfintechiq.service.LevenshteinService;
+import ru.artq.testfintechiq.service.SettingsService;
+import ru.artq.testfintechiq.service.StopFactorCache;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Бенчмарки движка сравнения имен на реалистичном наборе пар {@link NameCorpus}.
+ * Каждый вызов берет следующую пару из набора, поэтому результат усредняется
+ * по всему распределению имен, а не по одной удачной паре.
+ * <p>
+ * Сквозной расчет с кэшем и без него вынесен в {@link StopFactorBenchmark},
+ * здесь кэш выключен и каждый бенчмарк запускается один раз.
+ * <p>
+ * Запуск: {@code mvn -Pjmh test-compile exec:exec}, профилировщик gc
+ * добавляет к ops/s скорость выделения памяти ({@code gc.alloc.rate.norm}).
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class NameMatchingBenchmark {
+
+    private static final int PAIRS = 4096;
+
+    @Param("0.9")
+    private double threshold;
+
+    private String[][] pairs;
+    private String[][] tokens;
+    private String[][] combinationPairs;
+    private NameFingerprint[][] fingerprints;
+    private LevenshteinService levenshteinService;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        pairs = NameCorpus.pairs(PAIRS, 42);
+        fingerprints = new NameFingerprint[PAIRS][];
+        tokens = new String[PAIRS][];
+        combinationPairs = new String[PAIRS][];
+        for (int i = 0; i < PAIRS; i++) {
+            NameFingerprint regPerson = NameFingerprint.of(pairs[i][0]);
+            NameFingerprint verifiedName = NameFingerprint.of(pairs[i][1]);
+            fingerprints[i] = new NameFingerprint[]{regPerson, verifiedName};
+            tokens[i] = verifiedName.normalized().split(" ");
+            List<String> c1 = regPerson.combinations();
+            List<String> c2 = verifiedName.combinations();
+            combinationPairs[i] = new String[]{c1.get(i % c1.size()), c2.get(i % c2.size())};
+        }
+        levenshteinService = levenshteinService(threshold, 0);
+    }
+
+    private int nextIndex() {
+        int index = next;
+        next = (index + 1) & (PAIRS - 1);
+        return index;
+    }
+
+    @Benchmark
+    public double levenshteinRatio() {
+        String[] pair = combinationPairs[nextIndex()];
+        return levenshteinService.calculateLevenshteinRatio(pair[0], pair[1]);
+    }
+
+    /**
+     * Только построение комбинаций пар слов: слова уже разобраны и приведены
+     * к нижнему регистру, поэтому разбор строки в замер не попадает.
+     */
+    @Benchmark
+    public List<String> combinations() {
+        return NameFingerprint.combinationsOf(tokens[nextIndex()]);
+    }
+
+    @Benchmark
+    public NameFingerprint fingerprint() {
+        return NameFingerprint.of(pairs[nextIndex()][1]);
+    }
+
+    /**
+     * Проверка одинакового набора слов (бывший containsSameWords) на готовых отпечатках.
+     */
+    @Benchmark
+    public boolean sameWords() {
+        NameFingerprint[] pair = fingerprints[nextIndex()];
+        return pair[0].hasSameWords(pair[1]);
+    }
+
+    /**
+     * Сервис расчета без базы данных.
+     *
+     * @param cacheSize размер кэша стоп-факторов, 0 - без кэша
+     */
+    static LevenshteinService levenshteinService(double threshold, long cacheSize) {
+        StopFactorProperties properties = StopFactorPropertiesFixtures.defaults()
+                .cache(cacheSize, Duration.ofHours(1))
+                .build();
+        return new LevenshteinService(settingsService(threshold),
+                new StopFactorCache(properties, new SimpleMeterRegistry()), properties, new SimpleMeterRegistry());
+    }
+
+    /**
+     * Настройки без базы данных: репозиторий отвечает только на запрос порога.
+     */
+    private static SettingsService settingsService(double threshold) {
+        Settings settings = new Settings(1L, "distanceRatioThreshold", String.valueOf(threshold));
+        SettingsRepository repository = (SettingsRepository) Proxy.newProxyInstance(
+                SettingsRepository.class.getClassLoader(),
+                new Class<?>[]{SettingsRepository.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("findByName")) return settings;
+                    throw new UnsupportedOperationException(method.getName());
+                });
+        return new SettingsService(repository, new SimpleMeterRegistry());
+    }
+}
@@ -0,0 +1,72 @@
+package ru.artq.testfintechiq.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.artq.testfintechiq.matching.NameFingerprint;
+import ru.artq.testfintechiq.service.LevenshteinService;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сквозной расчет стоп-фактора на наборе пар {@link NameCorpus}:
+ * без кэша меряется сам движок, с кэшем - повторные пары.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class StopFactorBenchmark {
+
+    private static final int PAIRS = 4096;
+
+    @Param("0.9")
+    private double threshold;
+
+    @Param({"false", "true"})
+    private boolean cached;
+
+    private String[][] pairs;
+    private NameFingerprint[][] fingerprints;
+    private LevenshteinService levenshteinService;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        pairs = NameCorpus.pairs(PAIRS, 42);
+        fingerprints = new NameFingerprint[PAIRS][];
+        for (int i = 0; i < PAIRS; i++) {
+            fingerprints[i] = new NameFingerprint[]{NameFingerprint.of(pairs[i][0]), NameFingerprint.of(pairs[i][1])};
+        }
+        levenshteinService = NameMatchingBenchmark.levenshteinService(threshold, cached ? 100_000 : 0);
+    }
+
+    private int nextIndex() {
+        int index = next;
+        next = (index + 1) & (PAIRS - 1);
+        return index;
+    }
+
+    @Benchmark
+    public boolean stopFactor() {
+        String[] pair = pairs[nextIndex()];
+        return levenshteinService.calculateStopFactor(pair[0], pair[1]);
+    }
+
+    @Benchmark
+    public boolean stopFactorFingerprint() {
+        NameFingerprint[] pair = fingerprints[nextIndex()];
+        return levenshteinService.calculateStopFactor(pair[0], pair[1]);
+    }
+}
@@ -0,0 +1,32 @@
+package ru.artq.testfintechiq.config;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+import ru.artq.testfintechiq.service.BackfillJob;
+
+/**
+ * Индикатор {@code backfill}: состояние и прогресс фоновой обработки.
+ * Входит в группу readiness; при {@code backfill.readiness=wait} возвращает
+ * OUT_OF_SERVICE, пока обработка не завершится.
+ */
+@Component
+@RequiredArgsConstructor
+public class BackfillHealthIndicator implements HealthIndicator {
+    private final BackfillJob backfillJob;
+
+    @Override
+    public Health health() {
+        BackfillJob.Progress progress = backfillJob.getProgress();
+        Health.Builder builder = backfillJob.isReady() ? Health.up() : Health.outOfService();
+        builder.withDetail("state", progress.state())
+                .withDetail("total", progress.total())
+                .withDetail("processed", progress.processed())
+                .withDetail("failed", progress.failed());
+        if (progress.startedAt() != null) builder.withDetail("startedAt", progress.startedAt());
+        if (progress.finishedAt() != null) builder.withDetail("finishedAt", progress.finishedAt());
+        if (progress.error() != null) builder.withDetail("error", progress.error());
+        return builder.build();
+    }
+}
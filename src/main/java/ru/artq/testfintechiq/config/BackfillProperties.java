@@ -0,0 +1,28 @@
+package ru.artq.testfintechiq.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Настройки фоновой обработки при старте (префикс {@code backfill}).
+ *
+ * @param enabled   запускать обработку новых и упавших запросов после старта приложения
+ * @param readiness когда экземпляр готов принимать трафик
+ */
+@ConfigurationProperties(prefix = "backfill")
+public record BackfillProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("immediate") Readiness readiness
+) {
+
+    public enum Readiness {
+        /**
+         * Трафик принимается сразу, обработка идет в фоне.
+         */
+        IMMEDIATE,
+        /**
+         * Проверка готовности возвращает OUT_OF_SERVICE, пока обработка не завершится.
+         */
+        WAIT
+    }
+}
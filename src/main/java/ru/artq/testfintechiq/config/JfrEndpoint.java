@@ -0,0 +1,37 @@
+package ru.artq.testfintechiq.config;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import ru.artq.testfintechiq.jfr.JfrEventSwitch;
+
+import java.time.Duration;
+
+/**
+ * Actuator-эндпоинт событий JFR: {@code GET /actuator/jfr} возвращает состояние,
+ * {@code POST /actuator/jfr} с телом {@code {"enabled": true, "stopFactorThreshold": "5ms"}}
+ * включает или выключает события.
+ */
+@Component
+@Endpoint(id = "jfr")
+@RequiredArgsConstructor
+public class JfrEndpoint {
+    private final JfrEventSwitch jfrEventSwitch;
+
+    @ReadOperation
+    public JfrEventSwitch.Status status() {
+        return jfrEventSwitch.getStatus();
+    }
+
+    @WriteOperation
+    public JfrEventSwitch.Status toggle(boolean enabled,
+                                        @Nullable Duration stopFactorThreshold,
+                                        @Nullable Duration requestThreshold) {
+        return enabled
+                ? jfrEventSwitch.enable(stopFactorThreshold, requestThreshold)
+                : jfrEventSwitch.disable();
+    }
+}
@@ -0,0 +1,24 @@
+package ru.artq.testfintechiq.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Настройки собственных событий Java Flight Recorder (префикс {@code jfr}).
+ *
+ * @param enabled               записывать события с момента старта приложения
+ * @param stopFactorThreshold   минимальная длительность расчета стоп-фактора, попадающего в запись
+ * @param requestThreshold      минимальная длительность обработки запроса, попадающей в запись
+ * @param destination           файл, в который сохраняется запись при выключении; null - не сохранять
+ */
+@ConfigurationProperties(prefix = "jfr")
+public record JfrProperties(
+        @DefaultValue("false") boolean enabled,
+        @DefaultValue("10ms") Duration stopFactorThreshold,
+        @DefaultValue("100ms") Duration requestThreshold,
+        Path destination
+) {
+}
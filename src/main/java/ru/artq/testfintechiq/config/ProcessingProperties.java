@@ -0,0 +1,37 @@
+package ru.artq.testfintechiq.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Настройки повторной обработки сохраненных запросов (префикс {@code processing}).
+ *
+ * @param chunkSize   количество запросов, обрабатываемых в одной транзакции
+ * @param parallelism количество потоков, между которыми делится диапазон id, 1 - последовательно
+ * @param claim       распределение обработки между экземплярами приложения
+ */
+@ConfigurationProperties(prefix = "processing")
+public record ProcessingProperties(
+        @DefaultValue("500") int chunkSize,
+        @DefaultValue("1") int parallelism,
+        @DefaultValue Claim claim
+) {
+
+    /**
+     * @param enabled      разбирать порции через таблицу {@code processing_claim} (только PostgreSQL)
+     * @param lease        время аренды порции, после которого ее может забрать другой узел
+     * @param owner        имя узла в таблице порций, по умолчанию pid@host и случайный суффикс
+     * @param maxAttempts  сколько раз порцию можно арендовать, после этого она считается брошенной
+     * @param pollInterval пауза между проверками, пока оставшиеся порции арендованы другими узлами
+     */
+    public record Claim(
+            @DefaultValue("false") boolean enabled,
+            @DefaultValue("5m") Duration lease,
+            String owner,
+            @DefaultValue("3") int maxAttempts,
+            @DefaultValue("5s") Duration pollInterval
+    ) {
+    }
+}
@@ -0,0 +1,30 @@
+package ru.artq.testfintechiq.config;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+import ru.artq.testfintechiq.service.SettingsService;
+import ru.artq.testfintechiq.service.SettingsSnapshot;
+
+/**
+ * Actuator-эндпоинт настроек: {@code GET /actuator/settings} возвращает текущий снимок,
+ * {@code POST /actuator/settings} перечитывает настройки из базы данных.
+ */
+@Component
+@Endpoint(id = "settings")
+@RequiredArgsConstructor
+public class SettingsEndpoint {
+    private final SettingsService settingsService;
+
+    @ReadOperation
+    public SettingsSnapshot settings() {
+        return settingsService.getSnapshot();
+    }
+
+    @WriteOperation
+    public SettingsSnapshot refresh() {
+        return settingsService.refresh();
+    }
+}
@@ -0,0 +1,79 @@
+package ru.artq.testfintechiq.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Настройки расчета стоп-фактора (префикс {@code stop-factor}).
+ *
+ * @param batch     настройки пакетного расчета
+ * @param cache     настройки кэша результатов
+ * @param recompute настройки пересчета сохраненных результатов
+ * @param trace     настройки выборочного разбора расчетов
+ * @param budget    ограничение работы одного расчета
+ */
+@ConfigurationProperties(prefix = "stop-factor")
+public record StopFactorProperties(@DefaultValue Batch batch, @DefaultValue Cache cache,
+                                   @DefaultValue Recompute recompute, @DefaultValue Trace trace,
+                                   @DefaultValue Budget budget) {
+
+    /**
+     * @param maxSize       максимальное количество пар в одном пакетном запросе
+     * @param parallelism   количество потоков расчета, 0 - по числу ядер
+     * @param queueCapacity размер очереди задач пула расчета
+     * @param taskTimeout   сколько ждать результат одной пары, прежде чем завершить ответ ошибкой
+     */
+    public record Batch(
+            @DefaultValue("10000") int maxSize,
+            @DefaultValue("0") int parallelism,
+            @DefaultValue("1024") int queueCapacity,
+            @DefaultValue("30s") Duration taskTimeout
+    ) {
+        public int effectiveParallelism() {
+            return parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        }
+    }
+
+    /**
+     * @param maximumSize      максимальное количество пар в кэше
+     * @param expireAfterWrite время жизни результата в кэше
+     */
+    public record Cache(
+            @DefaultValue("100000") long maximumSize,
+            @DefaultValue("1h") Duration expireAfterWrite
+    ) {
+    }
+
+    /**
+     * @param batchSize   количество заявок, читаемых и записываемых за один раз
+     * @param parallelism количество потоков расчета, 0 - по числу ядер
+     */
+    public record Recompute(
+            @DefaultValue("1000") int batchSize,
+            @DefaultValue("0") int parallelism
+    ) {
+        public int effectiveParallelism() {
+            return parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        }
+    }
+
+    /**
+     * @param sampleRate доля принимаемых заявок, для которых разбор расчета пишется в лог
+     *                   {@code ru.artq.testfintechiq.trace.stop-factor}; 0 - выключено
+     */
+    public record Trace(
+            @DefaultValue("0") double sampleRate
+    ) {
+    }
+
+    /**
+     * @param maxPairs максимальное количество пар комбинаций в одном расчете, 0 - без ограничения.
+     *                 Если у длинных имен пар больше, из них оставляются самые информативные слова
+     */
+    public record Budget(
+            @DefaultValue("1000") int maxPairs
+    ) {
+    }
+}
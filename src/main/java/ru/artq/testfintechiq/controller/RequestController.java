@@ -1,21 +1,27 @@
 package ru.artq.testfintechiq.controller;
 
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ru.artq.testfintechiq.dto.StopFactorRequest;
 import ru.artq.testfintechiq.dto.StopFactorResponse;
 import ru.artq.testfintechiq.service.LevenshteinService;
 import ru.artq.testfintechiq.service.RequestProcessingService;
+import ru.artq.testfintechiq.service.StopFactorBatchService;
+
+import java.util.List;
 
 
 @RestController
 @RequestMapping("/api")
 public record RequestController(
         RequestProcessingService requestProcessingService,
-        LevenshteinService levenshteinService
+        LevenshteinService levenshteinService,
+        StopFactorBatchService stopFactorBatchService
 ) {
 
     @PostMapping("/process")
@@ -43,4 +49,14 @@ public record RequestController(
         );
         return ResponseEntity.ok(new StopFactorResponse(stopFactor));
     }
+
+    @PostMapping("/calculate/batch")
+    public ResponseEntity<StreamingResponseBody> calculateStopFactors(
+            @RequestBody List<StopFactorRequest> requests
+    ) {
+        stopFactorBatchService.validateBatch(requests);
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(out -> stopFactorBatchService.calculateStopFactors(requests, out));
+    }
 }
\ No newline at end of file
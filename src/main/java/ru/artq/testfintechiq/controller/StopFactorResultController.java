@@ -0,0 +1,55 @@
+package ru.artq.testfintechiq.controller;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import ru.artq.testfintechiq.dto.StopFactorExplanation;
+import ru.artq.testfintechiq.dto.StopFactorResultResponse;
+import ru.artq.testfintechiq.service.StopFactorRecomputeService;
+import ru.artq.testfintechiq.service.StopFactorResultService;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/stop-factor")
+public record StopFactorResultController(
+        StopFactorResultService stopFactorResultService,
+        StopFactorRecomputeService stopFactorRecomputeService
+) {
+
+    @PostMapping("/recompute")
+    public ResponseEntity<StopFactorRecomputeService.Progress> startRecompute() {
+        return ResponseEntity.accepted().body(stopFactorRecomputeService.start());
+    }
+
+    @GetMapping("/recompute")
+    public ResponseEntity<StopFactorRecomputeService.Progress> getRecomputeProgress() {
+        return ResponseEntity.ok(stopFactorRecomputeService.getProgress());
+    }
+
+    @GetMapping("/{loanRequestId}")
+    public ResponseEntity<StopFactorResultResponse> getResult(
+            @PathVariable String loanRequestId
+    ) {
+        return ResponseEntity.ok(stopFactorResultService.get(loanRequestId));
+    }
+
+    @GetMapping("/{loanRequestId}/explain")
+    public ResponseEntity<StopFactorExplanation> explain(
+            @PathVariable String loanRequestId
+    ) {
+        return ResponseEntity.ok(stopFactorResultService.explain(loanRequestId));
+    }
+
+    @GetMapping
+    public ResponseEntity<List<StopFactorResultResponse>> findStopFactors(
+            @RequestParam(required = false) Double threshold,
+            @RequestParam(defaultValue = "100") int limit
+    ) {
+        return ResponseEntity.ok(stopFactorResultService.findStopFactors(threshold, limit));
+    }
+}
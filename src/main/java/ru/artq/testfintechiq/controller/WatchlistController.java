@@ -0,0 +1,26 @@
+package ru.artq.testfintechiq.controller;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import ru.artq.testfintechiq.dto.WatchlistMatch;
+import ru.artq.testfintechiq.service.WatchlistService;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/watchlist")
+public record WatchlistController(
+        WatchlistService watchlistService
+) {
+
+    @GetMapping("/search")
+    public ResponseEntity<List<WatchlistMatch>> search(
+            @RequestParam String name,
+            @RequestParam(defaultValue = "20") int limit
+    ) {
+        return ResponseEntity.ok(watchlistService.search(name, limit));
+    }
+}
@@ -0,0 +1,28 @@
+package ru.artq.testfintechiq.dto;
+
+import ru.artq.testfintechiq.matching.NameFingerprint;
+
+/**
+ * Имена заявителя и проверенного имени одной заявки - только колонки,
+ * нужные для расчета стоп-фактора.
+ *
+ * @param regPersonId id строки reg_person, ключ постраничного чтения
+ */
+public record LoanNames(
+        Long regPersonId,
+        String loanRequestId,
+        String firstName,
+        String middleName,
+        String lastName,
+        String verifiedFirstName,
+        String verifiedOtherName,
+        String verifiedSurname
+) {
+    public NameFingerprint regPersonFingerprint() {
+        return NameFingerprint.ofParts(firstName, middleName, lastName);
+    }
+
+    public NameFingerprint verifiedNameFingerprint() {
+        return NameFingerprint.ofParts(verifiedFirstName, verifiedOtherName, verifiedSurname);
+    }
+}
@@ -0,0 +1,52 @@
+package ru.artq.testfintechiq.dto;
+
+import ru.artq.testfintechiq.matching.CombinationScorer;
+
+import java.util.List;
+
+/**
+ * Разбор расчета стоп-фактора для одной пары имен.
+ *
+ * @param regPerson      нормализованное имя регистрационного лица
+ * @param verifiedName   нормализованное проверенное имя
+ * @param reason         почему стоп-фактор сработал или нет
+ * @param bestRatio      максимальный коэффициент сходства; 1 для совпадающих имен
+ * @param threshold      порог, с которым сравнивался коэффициент
+ * @param stopFactor     результат
+ * @param budgetExceeded имена сокращены до самых информативных слов по {@code stop-factor.budget.max-pairs}
+ * @param pairs          все пары комбинаций по убыванию коэффициента
+ */
+public record StopFactorExplanation(
+        String regPerson,
+        String verifiedName,
+        Reason reason,
+        double bestRatio,
+        double threshold,
+        boolean stopFactor,
+        boolean budgetExceeded,
+        List<CombinationScorer.PairScore> pairs
+) {
+
+    public enum Reason {
+        /**
+         * Оба имени пустые.
+         */
+        EMPTY_NAMES,
+        /**
+         * Имена совпадают без учета регистра.
+         */
+        EQUAL_NAMES,
+        /**
+         * Имена состоят из одинаковых слов в другом порядке.
+         */
+        SAME_WORDS,
+        /**
+         * Коэффициент лучшей пары комбинаций не ниже порога.
+         */
+        PAIR_ABOVE_THRESHOLD,
+        /**
+         * Ни одна пара комбинаций не достигла порога.
+         */
+        NO_PAIR_ABOVE_THRESHOLD
+    }
+}
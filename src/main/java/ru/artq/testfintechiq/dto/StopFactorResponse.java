@@ -1,12 +1,28 @@
 package ru.artq.testfintechiq.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+/**
+ * Результат расчета стоп-фактора. В пакетном ответе {@code error} заполнен
+ * только у последнего элемента, если расчет прервался после начала ответа.
+ */
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class StopFactorResponse {
     private boolean stopFactor;
-}
\ No newline at end of file
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String error;
+
+    public StopFactorResponse(boolean stopFactor) {
+        this.stopFactor = stopFactor;
+    }
+
+    public static StopFactorResponse failed(String error) {
+        return new StopFactorResponse(false, error);
+    }
+}
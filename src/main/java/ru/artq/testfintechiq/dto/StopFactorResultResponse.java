@@ -0,0 +1,20 @@
+package ru.artq.testfintechiq.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.OffsetDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StopFactorResultResponse {
+    private String loanRequestId;
+    private double bestRatio;
+    private String regPersonCombination;
+    private String verifiedNameCombination;
+    private double threshold;
+    private boolean stopFactor;
+    private OffsetDateTime computedAt;
+}
@@ -0,0 +1,14 @@
+package ru.artq.testfintechiq.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class WatchlistMatch {
+    private String loanRequestId;
+    private String verifiedNameString;
+    private double ratio;
+}
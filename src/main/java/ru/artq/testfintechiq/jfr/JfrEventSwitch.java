@@ -0,0 +1,124 @@
+package ru.artq.testfintechiq.jfr;
+
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Recording;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import ru.artq.testfintechiq.config.JfrProperties;
+import ru.artq.testfintechiq.exception.BadRequestException;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Включение собственных событий JFR во время работы приложения.
+ * События объявлены выключенными, а включает их отдельная запись с порогами
+ * из {@link JfrProperties}. Настройки событий в JFR общие для всех записей,
+ * поэтому события попадают и в запись, запущенную извне
+ * ({@code -XX:StartFlightRecording}, {@code jcmd JFR.start}).
+ * При выключении запись сохраняется в {@code jfr.destination}, если он задан.
+ */
+@Component
+@Slf4j
+public class JfrEventSwitch {
+    static final String RECORDING_NAME = "fintechiq-events";
+
+    private final JfrProperties properties;
+
+    private Recording recording;
+    private Duration stopFactorThreshold;
+    private Duration requestThreshold;
+    private Instant startedAt;
+
+    public JfrEventSwitch(JfrProperties properties) {
+        this.properties = properties;
+        this.stopFactorThreshold = properties.stopFactorThreshold();
+        this.requestThreshold = properties.requestThreshold();
+    }
+
+    /**
+     * Состояние переключателя.
+     *
+     * @param enabled             события записываются
+     * @param stopFactorThreshold порог {@link StopFactorEvent}
+     * @param requestThreshold    порог {@link RequestProcessedEvent}
+     * @param startedAt           время включения
+     * @param destination         файл для сохранения записи при выключении
+     */
+    public record Status(boolean enabled, Duration stopFactorThreshold, Duration requestThreshold,
+                         Instant startedAt, Path destination) {
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (properties.enabled() && FlightRecorder.isAvailable()) {
+            enable(null, null);
+        }
+    }
+
+    /**
+     * Включает события с заданными порогами. Если события уже включены,
+     * запись перезапускается с новыми порогами.
+     *
+     * @param stopFactorThreshold порог расчета стоп-фактора или null - оставить текущий
+     * @param requestThreshold    порог обработки запроса или null - оставить текущий
+     */
+    public synchronized Status enable(Duration stopFactorThreshold, Duration requestThreshold) {
+        if (!FlightRecorder.isAvailable()) {
+            throw new BadRequestException("Java Flight Recorder is not available in this JVM");
+        }
+        if (stopFactorThreshold != null) this.stopFactorThreshold = stopFactorThreshold;
+        if (requestThreshold != null) this.requestThreshold = requestThreshold;
+        if (recording != null) disable();
+
+        Recording started = new Recording();
+        started.setName(RECORDING_NAME);
+        started.enable(StopFactorEvent.class).withThreshold(this.stopFactorThreshold);
+        started.enable(RequestProcessedEvent.class).withThreshold(this.requestThreshold);
+        if (properties.destination() != null) {
+            try {
+                started.setDestination(properties.destination());
+            } catch (IOException e) {
+                started.close();
+                throw new IllegalStateException("Invalid JFR destination: " + properties.destination(), e);
+            }
+        }
+        started.start();
+
+        recording = started;
+        startedAt = Instant.now();
+        log.info("JFR events enabled: stop factor threshold = {}, request threshold = {}",
+                this.stopFactorThreshold, this.requestThreshold);
+        return getStatus();
+    }
+
+    /**
+     * Выключает события. Запись сохраняется в {@code jfr.destination}, если он задан.
+     */
+    public synchronized Status disable() {
+        if (recording != null) {
+            // stop() сохраняет запись в destination; close() освобождает ее данные
+            recording.stop();
+            recording.close();
+            recording = null;
+            startedAt = null;
+            log.info("JFR events disabled");
+        }
+        return getStatus();
+    }
+
+    public synchronized Status getStatus() {
+        return new Status(recording != null, stopFactorThreshold, requestThreshold, startedAt,
+                properties.destination());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        disable();
+    }
+}
@@ -0,0 +1,81 @@
+package ru.artq.testfintechiq.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+import jdk.jfr.Timespan;
+import lombok.Setter;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Событие JFR для обработки одного запроса с длительностью каждого этапа.
+ * По умолчанию выключено, включается так же, как {@link StopFactorEvent}.
+ * Этапы, до которых обработка не дошла, остаются нулевыми.
+ */
+@Name("ru.artq.testfintechiq.RequestProcessed")
+@Label("Request Processed")
+@Category({"Fintech IQ", "Processing"})
+@Description("Ingestion of one bureau report")
+@Enabled(false)
+@Threshold("100 ms")
+@StackTrace(false)
+@Setter
+public class RequestProcessedEvent extends Event {
+
+    @Label("Loan Request Id")
+    String loanRequestId;
+
+    @Label("Size")
+    @DataAmount(DataAmount.BYTES)
+    long bytes;
+
+    @Label("Accounts")
+    int accountCount;
+
+    @Label("Parse")
+    @Timespan(Timespan.NANOSECONDS)
+    long parse;
+
+    @Label("Request Content")
+    @Timespan(Timespan.NANOSECONDS)
+    long requestContent;
+
+    @Label("Reg Person")
+    @Timespan(Timespan.NANOSECONDS)
+    long regPerson;
+
+    @Label("Verified Name")
+    @Timespan(Timespan.NANOSECONDS)
+    long verifiedName;
+
+    @Label("Account Info")
+    @Timespan(Timespan.NANOSECONDS)
+    long accountInfo;
+
+    @Label("Stop Factor Result")
+    @Timespan(Timespan.NANOSECONDS)
+    long stopFactorResult;
+
+    @Label("Mark Processed")
+    @Timespan(Timespan.NANOSECONDS)
+    long markProcessed;
+
+    /**
+     * Завершает событие и записывает его, если оно включено и длительность не меньше порога.
+     * Размер документа в байтах считается только для записываемых событий.
+     */
+    public void complete(String jsonContent) {
+        end();
+        if (!shouldCommit()) return;
+
+        this.bytes = jsonContent.getBytes(StandardCharsets.UTF_8).length;
+        commit();
+    }
+}
@@ -0,0 +1,93 @@
+package ru.artq.testfintechiq.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+import ru.artq.testfintechiq.matching.CombinationScorer;
+import ru.artq.testfintechiq.matching.NameFingerprint;
+
+/**
+ * Событие JFR для одного расчета стоп-фактора.
+ * По умолчанию выключено и включается записью с настройками
+ * {@code ru.artq.testfintechiq.StopFactor#enabled=true} (см. {@link JfrEventSwitch}),
+ * поэтому вне записи стоит только проверки {@link #shouldCommit()}.
+ * Содержит имена в нормализованном виде, чтобы по записи можно было найти
+ * имена с аномально долгим расчетом.
+ */
+@Name("ru.artq.testfintechiq.StopFactor")
+@Label("Stop Factor Calculation")
+@Category({"Fintech IQ", "Matching"})
+@Description("Stop factor calculation for a pair of names")
+@Enabled(false)
+@Threshold("10 ms")
+@StackTrace(false)
+public class StopFactorEvent extends Event {
+
+    @Label("Path")
+    @Description("shortcut - equal names, cached - result from cache, computed - combination pairs scanned")
+    String path;
+
+    @Label("Reg Person")
+    String regPerson;
+
+    @Label("Verified Name")
+    String verifiedName;
+
+    @Label("Reg Person Words")
+    int regPersonWords;
+
+    @Label("Verified Name Words")
+    int verifiedNameWords;
+
+    @Label("Pairs")
+    @Description("Combination pairs considered")
+    int pairs;
+
+    @Label("Pairs Scored")
+    @Description("Combination pairs with a distance calculation")
+    int pairsScored;
+
+    @Label("Ratio")
+    @Description("First ratio reaching the threshold, 0 if none did, 1 for equal names, NaN for cached results")
+    double ratio;
+
+    @Label("Threshold")
+    double threshold;
+
+    @Label("Stop Factor")
+    boolean stopFactor;
+
+    /**
+     * Завершает событие и записывает его, если оно включено и длительность не меньше порога.
+     *
+     * @param stats статистика перебора; null для совпадающих имен, не заполнена для результата из кэша
+     */
+    public void complete(String path, NameFingerprint regPerson, NameFingerprint verifiedName,
+                         CombinationScorer.Stats stats, double threshold, boolean stopFactor) {
+        end();
+        if (!shouldCommit()) return;
+
+        this.path = path;
+        this.regPerson = regPerson.normalized();
+        this.verifiedName = verifiedName.normalized();
+        this.regPersonWords = regPerson.wordCount();
+        this.verifiedNameWords = verifiedName.wordCount();
+        if (stats == null) {
+            this.ratio = 1.0;
+        } else if (stats.recorded()) {
+            this.pairs = stats.pairs();
+            this.pairsScored = stats.scored();
+            this.ratio = stats.ratio();
+        } else {
+            this.ratio = Double.NaN;
+        }
+        this.threshold = threshold;
+        this.stopFactor = stopFactor;
+        commit();
+    }
+}
@@ -0,0 +1,254 @@
+package ru.artq.testfintechiq.matching;
+
+import java.util.Arrays;
+
+/**
+ * Битово-параллельный расчет расстояния Левенштейна (Myers 1999, Hyyrö 2003).
+ * Столбец матрицы по образцу хранится в виде векторов вертикальных приращений,
+ * поэтому один символ текста обрабатывается за O(m / 64) машинных операций.
+ * Образец длиной до 64 символов обрабатывается одним словом, более длинный -
+ * блоками по 64 бита с переносом горизонтального приращения между блоками.
+ */
+final class BitParallelLevenshtein {
+
+    static final int WORD_SIZE = 64;
+
+    private static final ThreadLocal<Matcher> MATCHERS = ThreadLocal.withInitial(Matcher::new);
+
+    private BitParallelLevenshtein() {
+    }
+
+    /**
+     * Вычисляет расстояние между образцом и текстом, если оно не превышает границу.
+     *
+     * @param pattern     образец, не пустой; обычно более короткая строка
+     * @param text        текст
+     * @param maxDistance граница расстояния, {@link Integer#MAX_VALUE} для точного расчета
+     * @return точное расстояние или {@code maxDistance + 1}, если оно больше границы
+     */
+    static int distance(CharSequence pattern, CharSequence text, int maxDistance) {
+        Matcher matcher = MATCHERS.get();
+        matcher.pattern(pattern);
+        matcher.reset();
+        if (!matcher.advance(text, 0, maxDistance)) return maxDistance + 1;
+        return matcher.score() > maxDistance ? maxDistance + 1 : matcher.score();
+    }
+
+    /**
+     * Возобновляемый расчет расстояния от фиксированного образца до текста,
+     * подаваемого частями. Состояние после префикса текста можно сохранить
+     * и продолжать от него с разными продолжениями: так строка матрицы для
+     * общего префикса считается один раз.
+     */
+    static final class Matcher {
+        private final PatternTable table = new PatternTable();
+        private int m;
+        private int blocks;
+        private long lastBit;
+        private long[] pv = new long[4];
+        private long[] mv = new long[4];
+        private long[] savedPv = new long[4];
+        private long[] savedMv = new long[4];
+        private int score;
+        private int savedScore;
+
+        /**
+         * Задает образец, не пустой.
+         */
+        void pattern(CharSequence pattern) {
+            m = pattern.length();
+            blocks = table.build(pattern);
+            lastBit = 1L << ((m - 1) & (WORD_SIZE - 1));
+            if (pv.length < blocks) {
+                pv = new long[blocks];
+                mv = new long[blocks];
+                savedPv = new long[blocks];
+                savedMv = new long[blocks];
+            }
+        }
+
+        /**
+         * Возвращает состояние к пустому тексту.
+         */
+        void reset() {
+            Arrays.fill(pv, 0, blocks, -1L);
+            Arrays.fill(mv, 0, blocks, 0L);
+            score = m;
+        }
+
+        void save() {
+            System.arraycopy(pv, 0, savedPv, 0, blocks);
+            System.arraycopy(mv, 0, savedMv, 0, blocks);
+            savedScore = score;
+        }
+
+        void restore() {
+            System.arraycopy(savedPv, 0, pv, 0, blocks);
+            System.arraycopy(savedMv, 0, mv, 0, blocks);
+            score = savedScore;
+        }
+
+        /**
+         * @return расстояние от образца до всего поданного текста
+         */
+        int score() {
+            return score;
+        }
+
+        /**
+         * Продолжает расчет символами {@code text}.
+         *
+         * @param remaining   сколько символов текста еще будет подано после этой части
+         * @param maxDistance граница расстояния для досрочного выхода
+         * @return false, если итоговое расстояние заведомо превысит границу
+         */
+        boolean advance(CharSequence text, int remaining, int maxDistance) {
+            return blocks == 1
+                    ? advanceSingleWord(text, remaining, maxDistance)
+                    : advanceMultiWord(text, remaining, maxDistance);
+        }
+
+        private boolean advanceSingleWord(CharSequence text, int remaining, int maxDistance) {
+            int n = text.length();
+            long pvw = pv[0];
+            long mvw = mv[0];
+            long last = lastBit;
+            int sc = score;
+            boolean withinBound = true;
+
+            for (int j = 0; j < n; j++) {
+                int slot = table.slot(text.charAt(j));
+                long eq = slot < 0 ? 0L : table.masks[slot];
+                long xv = eq | mvw;
+                long xh = (((eq & pvw) + pvw) ^ pvw) | eq;
+                long ph = mvw | ~(xh | pvw);
+                long mh = pvw & xh;
+                if ((ph & last) != 0) sc++;
+                if ((mh & last) != 0) sc--;
+                // Верхняя строка матрицы растет на 1 с каждым символом текста
+                ph = (ph << 1) | 1L;
+                mh = mh << 1;
+                pvw = mh | ~(xv | ph);
+                mvw = ph & xv;
+
+                // Каждый оставшийся символ уменьшает итог не более чем на 1
+                if (sc - (n - j - 1) - remaining > maxDistance) {
+                    withinBound = false;
+                    break;
+                }
+            }
+            pv[0] = pvw;
+            mv[0] = mvw;
+            score = sc;
+            return withinBound;
+        }
+
+        private boolean advanceMultiWord(CharSequence text, int remaining, int maxDistance) {
+            int n = text.length();
+            for (int j = 0; j < n; j++) {
+                int slot = table.slot(text.charAt(j));
+                int base = slot * blocks;
+                int carry = 1;
+                for (int b = 0; b < blocks; b++) {
+                    long eq = slot < 0 ? 0L : table.masks[base + b];
+                    long pvb = pv[b];
+                    long mvb = mv[b];
+                    long xv = eq | mvb;
+                    if (carry < 0) eq |= 1L;
+                    long xh = (((eq & pvb) + pvb) ^ pvb) | eq;
+                    long ph = mvb | ~(xh | pvb);
+                    long mh = pvb & xh;
+
+                    long high = b == blocks - 1 ? lastBit : Long.MIN_VALUE;
+                    int out = (ph & high) != 0 ? 1 : (mh & high) != 0 ? -1 : 0;
+
+                    ph <<= 1;
+                    mh <<= 1;
+                    if (carry < 0) mh |= 1L;
+                    else if (carry > 0) ph |= 1L;
+                    pv[b] = mh | ~(xv | ph);
+                    mv[b] = ph & xv;
+                    carry = out;
+                }
+                score += carry;
+
+                if (score - (n - j - 1) - remaining > maxDistance) return false;
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Таблица масок совпадений (Peq) для образца: символ -> битовая маска позиций
+     * по каждому блоку. Открытая адресация с поколениями слотов позволяет
+     * переиспользовать таблицу без очистки между вызовами.
+     */
+    static final class PatternTable {
+        private char[] keys = new char[128];
+        private int[] stamps = new int[128];
+        private long[] masks = new long[128];
+        private int blocks;
+        private int shift = 32 - 7;
+        private int generation;
+
+        /**
+         * Заполняет таблицу масками образца.
+         *
+         * @return количество 64-битных блоков образца
+         */
+        int build(CharSequence pattern) {
+            int m = pattern.length();
+            blocks = (m + WORD_SIZE - 1) / WORD_SIZE;
+            ensureCapacity(Integer.highestOneBit(Math.max(64, m) - 1) << 2);
+            if (++generation == 0) {
+                Arrays.fill(stamps, 0);
+                generation = 1;
+            }
+
+            int mask = keys.length - 1;
+            for (int i = 0; i < m; i++) {
+                char c = pattern.charAt(i);
+                int h = hash(c);
+                while (stamps[h] == generation && keys[h] != c) {
+                    h = (h + 1) & mask;
+                }
+                if (stamps[h] != generation) {
+                    stamps[h] = generation;
+                    keys[h] = c;
+                    Arrays.fill(masks, h * blocks, h * blocks + blocks, 0L);
+                }
+                masks[h * blocks + i / WORD_SIZE] |= 1L << (i & (WORD_SIZE - 1));
+            }
+            return blocks;
+        }
+
+        /**
+         * @return индекс слота символа или -1, если символа нет в образце
+         */
+        int slot(char c) {
+            int mask = keys.length - 1;
+            int h = hash(c);
+            while (stamps[h] == generation) {
+                if (keys[h] == c) return h;
+                h = (h + 1) & mask;
+            }
+            return -1;
+        }
+
+        private int hash(char c) {
+            return (c * 0x9E3779B1) >>> shift;
+        }
+
+        private void ensureCapacity(int capacity) {
+            if (keys.length < capacity) {
+                keys = new char[capacity];
+                stamps = new int[capacity];
+                generation = 0;
+                shift = 32 - Integer.numberOfTrailingZeros(capacity);
+            }
+            if (masks.length < keys.length * blocks) {
+                masks = new long[keys.length * blocks];
+            }
+        }
+    }
+}
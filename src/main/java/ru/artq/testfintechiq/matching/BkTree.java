@@ -0,0 +1,129 @@
+package ru.artq.testfintechiq.matching;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * BK-дерево строк по расстоянию Левенштейна.
+ * Каждый узел хранит строку и привязанные к ней значения, потомки узла
+ * разложены по расстоянию до него. Поиск в радиусе r от строки на расстоянии d
+ * от узла спускается только в потомков с расстоянием из [d - r, d + r]
+ * (неравенство треугольника), поэтому просматривается малая часть дерева.
+ * Экземпляр не потокобезопасен: синхронизация остается вызывающему коду.
+ *
+ * @param <V> тип значений, привязанных к строкам
+ */
+public final class BkTree<V> {
+
+    private Node<V> root;
+    private int size;
+
+    /**
+     * Обработчик найденной строки.
+     */
+    @FunctionalInterface
+    public interface MatchConsumer<V> {
+        void accept(String key, int distance, List<V> values);
+    }
+
+    /**
+     * Добавляет значение к строке, создавая узел, если строки еще нет.
+     */
+    public void add(String key, V value) {
+        if (root == null) {
+            root = new Node<>(key);
+            root.values.add(value);
+            size++;
+            return;
+        }
+        Node<V> node = root;
+        while (true) {
+            int distance = LevenshteinDistance.distance(key, node.key);
+            if (distance == 0) {
+                node.values.add(value);
+                return;
+            }
+            Node<V> child = node.child(distance);
+            if (child == null) {
+                child = new Node<>(key);
+                child.values.add(value);
+                node.addChild(distance, child);
+                size++;
+                return;
+            }
+            node = child;
+        }
+    }
+
+    /**
+     * Находит все строки на расстоянии не больше {@code radius} от запроса.
+     *
+     * @param query    строка запроса
+     * @param radius   максимальное расстояние, не меньше 0
+     * @param consumer получает каждую найденную строку, расстояние и ее значения
+     */
+    public void search(String query, int radius, MatchConsumer<V> consumer) {
+        if (root == null) return;
+
+        Deque<Node<V>> stack = new ArrayDeque<>();
+        stack.push(root);
+        while (!stack.isEmpty()) {
+            Node<V> node = stack.pop();
+            int distance = LevenshteinDistance.distance(query, node.key);
+            if (distance <= radius) consumer.accept(node.key, distance, node.values);
+
+            int from = distance - radius;
+            int to = distance + radius;
+            for (int i = 0; i < node.childCount; i++) {
+                int childDistance = node.childDistances[i];
+                if (childDistance >= from && childDistance <= to) stack.push(node.children[i]);
+            }
+        }
+    }
+
+    /**
+     * @return количество различных строк в дереве
+     */
+    public int size() {
+        return size;
+    }
+
+    private static final class Node<V> {
+        private final String key;
+        private final List<V> values = new ArrayList<>(1);
+        private int[] childDistances = new int[0];
+        private Node<V>[] children = newChildren(0);
+        private int childCount;
+
+        Node(String key) {
+            this.key = key;
+        }
+
+        Node<V> child(int distance) {
+            for (int i = 0; i < childCount; i++) {
+                if (childDistances[i] == distance) return children[i];
+            }
+            return null;
+        }
+
+        void addChild(int distance, Node<V> child) {
+            // Расстояния до потомков ограничены длинами строк, поэтому массивы остаются короткими
+            if (childCount == children.length) {
+                int capacity = Math.max(4, childCount * 2);
+                childDistances = Arrays.copyOf(childDistances, capacity);
+                children = Arrays.copyOf(children, capacity);
+            }
+            childDistances[childCount] = distance;
+            children[childCount] = child;
+            childCount++;
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <V> Node<V>[] newChildren(int capacity) {
+            return (Node<V>[]) new Node[capacity];
+        }
+    }
+}
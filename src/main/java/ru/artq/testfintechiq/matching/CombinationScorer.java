@@ -0,0 +1,278 @@
+package ru.artq.testfintechiq.matching;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Сравнение всех пар комбинаций слов двух имен с переиспользованием общих префиксов.
+ * Комбинации одного имени строятся из пар слов (i, j), поэтому у всех комбинаций
+ * с одинаковым первым словом общий префикс: например, "isaacabraham" и "isaacsamuel".
+ * Для каждой комбинации второго имени маски образца строятся один раз, состояние
+ * битово-параллельного расчета после первого слова сохраняется и продолжается
+ * каждым вторым словом, а не пересчитывается заново для каждой пары.
+ */
+public final class CombinationScorer {
+
+    private static final ThreadLocal<BitParallelLevenshtein.Matcher> MATCHERS =
+            ThreadLocal.withInitial(BitParallelLevenshtein.Matcher::new);
+
+    private CombinationScorer() {
+    }
+
+    /**
+     * Дешевая проверка пары перед расчетом расстояния.
+     */
+    @FunctionalInterface
+    public interface PairFilter {
+        /**
+         * @param maxDistance максимальное расстояние, при котором пара еще достигает порога
+         * @return true, если пару можно не сравнивать
+         */
+        boolean reject(CharSequence regPersonCombination, CharSequence verifiedNameCombination, int maxDistance);
+    }
+
+    /**
+     * Ищет пару комбинаций двух имен с коэффициентом сходства не ниже порога.
+     *
+     * @see #firstMatchRatio(String[], List, List, double, PairFilter)
+     */
+    public static double firstMatchRatio(NameFingerprint regPerson,
+                                         NameFingerprint verifiedName,
+                                         double threshold,
+                                         PairFilter filter) {
+        return firstMatchRatio(regPerson, verifiedName, threshold, filter, null);
+    }
+
+    /**
+     * Ищет пару комбинаций двух имен с коэффициентом сходства не ниже порога
+     * и записывает статистику перебора.
+     *
+     * @param stats статистика перебора или null
+     * @see #firstMatchRatio(String[], List, List, double, PairFilter)
+     */
+    public static double firstMatchRatio(NameFingerprint regPerson,
+                                         NameFingerprint verifiedName,
+                                         double threshold,
+                                         PairFilter filter,
+                                         Stats stats) {
+        return scan(regPerson.tokens(), regPerson.combinations(), verifiedName.combinations(),
+                threshold, true, filter, stats).ratio();
+    }
+
+    /**
+     * Ищет пару комбинаций с коэффициентом сходства не ниже порога.
+     * Расчет прекращается на первой такой паре: для стоп-фактора важен только
+     * факт достижения порога, а пары дальше границы расстояния не досчитываются.
+     *
+     * @param regPersonTokens          слова первого имени
+     * @param regPersonCombinations    комбинации первого имени в порядке пар (i, j), i &lt; j,
+     *                                 или единственное слово
+     * @param verifiedNameCombinations комбинации второго имени
+     * @param threshold                порог коэффициента сходства, не больше 1
+     * @param filter                   фильтр пар перед расчетом расстояния
+     * @return первый найденный коэффициент не ниже порога или 0, если таких пар нет
+     */
+    public static double firstMatchRatio(String[] regPersonTokens,
+                                         List<String> regPersonCombinations,
+                                         List<String> verifiedNameCombinations,
+                                         double threshold,
+                                         PairFilter filter) {
+        return scan(regPersonTokens, regPersonCombinations, verifiedNameCombinations, threshold, true, filter, null)
+                .ratio();
+    }
+
+    /**
+     * Находит пару комбинаций двух имен с максимальным коэффициентом сходства.
+     * Граница расстояния сужается по лучшему найденному коэффициенту, поэтому
+     * пары, которые не могут его превзойти, не досчитываются.
+     *
+     * @return лучшая пара или {@link Match#NONE}, если у имен нет комбинаций
+     */
+    public static Match bestMatch(NameFingerprint regPerson, NameFingerprint verifiedName, PairFilter filter) {
+        return bestMatch(regPerson, verifiedName, filter, null);
+    }
+
+    /**
+     * Находит пару комбинаций с максимальным коэффициентом сходства
+     * и записывает статистику перебора.
+     *
+     * @param stats статистика перебора или null
+     * @see #bestMatch(NameFingerprint, NameFingerprint, PairFilter)
+     */
+    public static Match bestMatch(NameFingerprint regPerson, NameFingerprint verifiedName,
+                                  PairFilter filter, Stats stats) {
+        return scan(regPerson.tokens(), regPerson.combinations(), verifiedName.combinations(),
+                0.0, false, filter, stats);
+    }
+
+    /**
+     * Пара комбинаций и ее коэффициент сходства.
+     */
+    public record Match(double ratio, String regPersonCombination, String verifiedNameCombination) {
+        public static final Match NONE = new Match(0.0, null, null);
+    }
+
+    /**
+     * Пара комбинаций с точным расстоянием и коэффициентом сходства.
+     */
+    public record PairScore(String regPersonCombination, String verifiedNameCombination, int distance, double ratio) {
+    }
+
+    /**
+     * Считает все пары комбинаций двух имен без границ, фильтров и досрочного выхода.
+     * Предназначен для разбора отдельных заявок, а не для горячего пути.
+     *
+     * @return пары по убыванию коэффициента, при равенстве - в порядке перебора
+     */
+    public static List<PairScore> explain(NameFingerprint regPerson, NameFingerprint verifiedName) {
+        List<PairScore> pairs = new ArrayList<>(regPerson.combinations().size() * verifiedName.combinations().size());
+        for (String regPersonCombination : regPerson.combinations()) {
+            for (String verifiedNameCombination : verifiedName.combinations()) {
+                int distance = LevenshteinDistance.distance(regPersonCombination, verifiedNameCombination);
+                int maxLength = Math.max(regPersonCombination.length(), verifiedNameCombination.length());
+                double ratio = maxLength == 0 ? 1.0 : 1.0 - ((double) distance / maxLength);
+                pairs.add(new PairScore(regPersonCombination, verifiedNameCombination, distance, ratio));
+            }
+        }
+        pairs.sort(Comparator.comparingDouble(PairScore::ratio).reversed());
+        return pairs;
+    }
+
+    /**
+     * Статистика одного перебора пар. Объект не потокобезопасен:
+     * заполняется одним вызовом и читается после него.
+     */
+    public static final class Stats {
+        private int pairs;
+        private int filtered;
+        private int scored;
+        private boolean earlyExit;
+        private boolean recorded;
+        private double ratio;
+
+        /**
+         * @return true, если перебор выполнялся и статистика заполнена
+         */
+        public boolean recorded() {
+            return recorded;
+        }
+
+        /**
+         * @return количество рассмотренных пар комбинаций
+         */
+        public int pairs() {
+            return pairs;
+        }
+
+        /**
+         * @return количество пар, отброшенных границей расстояния или фильтром без расчета
+         */
+        public int filtered() {
+            return filtered;
+        }
+
+        /**
+         * @return количество пар, для которых считалось расстояние
+         */
+        public int scored() {
+            return scored;
+        }
+
+        /**
+         * @return коэффициент результата перебора
+         */
+        public double ratio() {
+            return ratio;
+        }
+
+        /**
+         * @return true, если перебор остановлен на найденной паре, не дойдя до конца
+         */
+        public boolean earlyExit() {
+            return earlyExit;
+        }
+
+        private Match finish(Match result, int pairs, int filtered, int scored, boolean earlyExit) {
+            this.pairs = pairs;
+            this.filtered = filtered;
+            this.scored = scored;
+            this.earlyExit = earlyExit;
+            this.recorded = true;
+            this.ratio = result.ratio();
+            return result;
+        }
+    }
+
+    /**
+     * Перебирает пары комбинаций, для которых коэффициент может быть не ниже {@code minRatio}.
+     * В режиме {@code firstOnly} возвращает первую такую пару, иначе после каждой найденной
+     * пары поднимает границу выше ее коэффициента и возвращает лучшую.
+     */
+    private static Match scan(String[] regPersonTokens,
+                              List<String> regPersonCombinations,
+                              List<String> verifiedNameCombinations,
+                              double minRatio,
+                              boolean firstOnly,
+                              PairFilter filter,
+                              Stats stats) {
+        BitParallelLevenshtein.Matcher matcher = MATCHERS.get();
+        int n = regPersonTokens.length;
+        Match best = Match.NONE;
+        int pairs = 0;
+        int filtered = 0;
+        int scored = 0;
+
+        for (String verifiedName : verifiedNameCombinations) {
+            boolean patternReady = false;
+            int combination = 0;
+
+            for (int i = 0; i < n; i++) {
+                boolean prefixReady = false;
+                // Единственное слово - это префикс с пустым продолжением
+                int from = n == 1 ? 0 : i + 1;
+                int to = n == 1 ? 1 : n;
+
+                for (int j = from; j < to; j++) {
+                    String regPerson = regPersonCombinations.get(combination++);
+                    String suffix = n == 1 ? "" : regPersonTokens[j];
+                    pairs++;
+
+                    int maxLength = Math.max(regPerson.length(), verifiedName.length());
+                    int maxDistance = LevenshteinDistance.maxDistanceForRatio(minRatio, maxLength);
+                    if (maxDistance < 0 || filter.reject(regPerson, verifiedName, maxDistance)) {
+                        filtered++;
+                        continue;
+                    }
+                    scored++;
+
+                    if (!patternReady) {
+                        matcher.pattern(verifiedName);
+                        patternReady = true;
+                    }
+                    if (!prefixReady) {
+                        matcher.reset();
+                        matcher.advance(regPersonTokens[i], 0, Integer.MAX_VALUE);
+                        matcher.save();
+                        prefixReady = true;
+                    } else {
+                        matcher.restore();
+                    }
+
+                    if (!matcher.advance(suffix, 0, maxDistance) || matcher.score() > maxDistance) continue;
+
+                    double ratio = 1.0 - ((double) matcher.score() / maxLength);
+                    if (ratio < minRatio) continue;
+
+                    best = new Match(ratio, regPerson, verifiedName);
+                    if (firstOnly || ratio >= 1.0) {
+                        return stats == null ? best : stats.finish(best, pairs, filtered, scored, true);
+                    }
+                    minRatio = Math.nextUp(ratio);
+                }
+            }
+        }
+        Match result = firstOnly ? Match.NONE : best;
+        return stats == null ? result : stats.finish(result, pairs, filtered, scored, false);
+    }
+}
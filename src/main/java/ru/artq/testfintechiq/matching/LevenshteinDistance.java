@@ -0,0 +1,163 @@
+package ru.artq.testfintechiq.matching;
+
+/**
+ * Ядра расчета расстояния Левенштейна.
+ * Основной путь - битово-параллельный алгоритм {@link BitParallelLevenshtein},
+ * классическое динамическое программирование оставлено как эталон.
+ * Все методы потокобезопасны и не выделяют память на горячем пути:
+ * рабочие буферы привязаны к потоку и переиспользуются между вызовами.
+ */
+public final class LevenshteinDistance {
+
+    private static final int HISTOGRAM_SIZE = 1024;
+
+    private static final ThreadLocal<Rows> ROWS = ThreadLocal.withInitial(Rows::new);
+
+    private LevenshteinDistance() {
+    }
+
+    /**
+     * Вычисляет расстояние Левенштейна битово-параллельным алгоритмом.
+     * Образцом служит более короткая строка: до 64 символов она обрабатывается
+     * одним машинным словом, длиннее - несколькими.
+     *
+     * @param s1 первая строка
+     * @param s2 вторая строка
+     * @return минимальное кол-во операций редактирования (вставка, удаление, замена)
+     */
+    public static int distance(CharSequence s1, CharSequence s2) {
+        if (s1.length() < s2.length()) {
+            CharSequence tmp = s1;
+            s1 = s2;
+            s2 = tmp;
+        }
+        if (s2.isEmpty()) return s1.length();
+        return BitParallelLevenshtein.distance(s2, s1, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Вычисляет расстояние Левенштейна классическим динамическим программированием,
+     * храня только две строки матрицы.
+     *
+     * @param s1 первая строка
+     * @param s2 вторая строка
+     * @return минимальное кол-во операций редактирования (вставка, удаление, замена)
+     */
+    public static int dpDistance(CharSequence s1, CharSequence s2) {
+        // Строка матрицы идет вдоль более короткой строки, чтобы буфер был минимальным
+        if (s1.length() < s2.length()) {
+            CharSequence tmp = s1;
+            s1 = s2;
+            s2 = tmp;
+        }
+        int n = s1.length();
+        int m = s2.length();
+        if (m == 0) return n;
+
+        Rows rows = ROWS.get();
+        int[] prev = rows.prev(m + 1);
+        int[] curr = rows.curr(m + 1);
+
+        for (int j = 0; j <= m; j++) {
+            prev[j] = j;
+        }
+
+        for (int i = 1; i <= n; i++) {
+            char c1 = s1.charAt(i - 1);
+            curr[0] = i;
+            for (int j = 1; j <= m; j++) {
+                int cost = c1 == s2.charAt(j - 1) ? 0 : 1;
+                curr[j] = Math.min(
+                        Math.min(prev[j] + 1, curr[j - 1] + 1),
+                        prev[j - 1] + cost
+                );
+            }
+            int[] tmp = prev;
+            prev = curr;
+            curr = tmp;
+        }
+
+        return prev[m];
+    }
+
+    /**
+     * Находит наибольшее расстояние, при котором коэффициент сходства
+     * {@code 1 - distance / maxLength} еще не меньше порога.
+     * Результат уточняется тем же выражением, что и в расчете коэффициента,
+     * чтобы ошибки округления не меняли итог сравнения с порогом.
+     *
+     * @param minRatio  минимальный интересующий коэффициент сходства
+     * @param maxLength длина более длинной из сравниваемых строк, больше 0
+     * @return максимальное полезное расстояние или -1, если порог недостижим
+     */
+    public static int maxDistanceForRatio(double minRatio, int maxLength) {
+        int distance = (int) Math.floor((1.0 - minRatio) * maxLength);
+        distance = Math.max(-1, Math.min(distance, maxLength));
+        while (distance < maxLength && 1.0 - ((double) (distance + 1) / maxLength) >= minRatio) {
+            distance++;
+        }
+        while (distance >= 0 && 1.0 - ((double) distance / maxLength) < minRatio) {
+            distance--;
+        }
+        return distance;
+    }
+
+    /**
+     * Вычисляет мешочное расстояние (bag distance) - нижнюю границу расстояния
+     * Левенштейна по гистограммам символов: каждая операция редактирования
+     * меняет разницу гистограмм не более чем на единицу с каждой стороны.
+     * Символы сворачиваются в {@value #HISTOGRAM_SIZE} корзин; совпадение корзин
+     * только уменьшает оценку, поэтому она остается нижней границей.
+     *
+     * @param s1 первая строка
+     * @param s2 вторая строка
+     * @return нижняя граница расстояния Левенштейна
+     */
+    public static int bagDistance(CharSequence s1, CharSequence s2) {
+        int[] histogram = ROWS.get().histogram;
+        for (int i = 0; i < s1.length(); i++) {
+            histogram[s1.charAt(i) & (HISTOGRAM_SIZE - 1)]++;
+        }
+        for (int i = 0; i < s2.length(); i++) {
+            histogram[s2.charAt(i) & (HISTOGRAM_SIZE - 1)]--;
+        }
+
+        // Проходы по тем же строкам заодно обнуляют гистограмму для следующего вызова
+        int surplus = 0;
+        for (int i = 0; i < s1.length(); i++) {
+            int bucket = s1.charAt(i) & (HISTOGRAM_SIZE - 1);
+            if (histogram[bucket] > 0) {
+                surplus += histogram[bucket];
+                histogram[bucket] = 0;
+            }
+        }
+        int deficit = 0;
+        for (int i = 0; i < s2.length(); i++) {
+            int bucket = s2.charAt(i) & (HISTOGRAM_SIZE - 1);
+            if (histogram[bucket] < 0) {
+                deficit -= histogram[bucket];
+                histogram[bucket] = 0;
+            }
+        }
+        return Math.max(surplus, deficit);
+    }
+
+    /**
+     * Буферы строк матрицы одного потока. Растут по мере необходимости и не сжимаются.
+     */
+    private static final class Rows {
+        private final int[] histogram = new int[HISTOGRAM_SIZE];
+        private int[] prev = new int[64];
+        private int[] curr = new int[64];
+
+        int[] prev(int size) {
+            if (prev.length < size) prev = new int[Math.max(size, prev.length * 2)];
+            return prev;
+        }
+
+        int[] curr(int size) {
+            if (curr.length < size) curr = new int[Math.max(size, curr.length * 2)];
+            return curr;
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package ru.artq.testfintechiq.matching;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.StringJoiner;
+
+/**
+ * Предварительно разобранное имя для расчета стоп-фактора.
+ * Нормализация (обрезка пробелов, нижний регистр, разбиение на слова),
+ * отсортированный набор слов и комбинации пар слов считаются один раз
+ * при построении, поэтому повторные сравнения не разбирают строки заново.
+ * Экземпляры неизменяемы и потокобезопасны.
+ */
+public final class NameFingerprint {
+
+    private static final String[] NO_TOKENS = new String[0];
+
+    private final String trimmed;
+    private final String normalized;
+    private final String[] tokens;
+    private final String sortedTokens;
+    private final int sortedTokensHash;
+    private final List<String> combinations;
+
+    private NameFingerprint(String trimmed) {
+        this.trimmed = trimmed;
+        String lowerCase = trimmed.toLowerCase();
+        this.tokens = lowerCase.isEmpty() ? NO_TOKENS : lowerCase.split("\\s+");
+        this.normalized = String.join(" ", tokens);
+
+        String[] sorted = tokens.clone();
+        Arrays.sort(sorted);
+        this.sortedTokens = String.join(" ", sorted);
+        this.sortedTokensHash = sortedTokens.hashCode();
+        this.combinations = combinationsOf(tokens);
+    }
+
+    /**
+     * Строит отпечаток строки с именем.
+     *
+     * @param name имя, слова разделены пробелами
+     * @return отпечаток или null, если имя null
+     */
+    public static NameFingerprint of(String name) {
+        return name == null ? null : new NameFingerprint(name.trim());
+    }
+
+    /**
+     * Строит отпечаток имени из отдельных полей, пропуская пустые (null) поля.
+     *
+     * @param parts поля имени в порядке следования
+     * @return отпечаток имени
+     */
+    public static NameFingerprint ofParts(String... parts) {
+        StringBuilder sb = new StringBuilder();
+        for (String part : parts) {
+            if (part != null) sb.append(part).append(' ');
+        }
+        return new NameFingerprint(sb.toString().trim());
+    }
+
+    /**
+     * @return true, если в имени нет ни одного слова
+     */
+    public boolean isEmpty() {
+        return tokens.length == 0;
+    }
+
+    /**
+     * Проверяет совпадение имен без учета регистра в исходном написании.
+     */
+    public boolean equalsIgnoreCase(NameFingerprint other) {
+        return trimmed.equalsIgnoreCase(other.trimmed);
+    }
+
+    /**
+     * Проверяет, состоят ли имена из одинаковых слов независимо от порядка.
+     */
+    public boolean hasSameWords(NameFingerprint other) {
+        return sortedTokensHash == other.sortedTokensHash && sortedTokens.equals(other.sortedTokens);
+    }
+
+    /**
+     * @return слова в нижнем регистре, разделенные одним пробелом
+     */
+    public String normalized() {
+        return normalized;
+    }
+
+    /**
+     * @return слова в нижнем регистре, отсортированные и разделенные одним пробелом;
+     * совпадает у имен, которые {@link #hasSameWords(NameFingerprint) состоят из одинаковых слов}
+     */
+    public String sortedWords() {
+        return sortedTokens;
+    }
+
+    /**
+     * @return количество слов
+     */
+    public int wordCount() {
+        return tokens.length;
+    }
+
+    /**
+     * Оставляет не больше {@code maxTokens} самых информативных слов: более длинные слова
+     * важнее коротких (инициалы, титулы, частицы), при равной длине - стоящие раньше.
+     * Выбранные слова сохраняют исходный порядок, поэтому результат детерминирован.
+     *
+     * @param maxTokens максимальное количество слов, не меньше 1
+     * @return этот отпечаток, если слов не больше {@code maxTokens}, иначе отпечаток из выбранных слов
+     */
+    public NameFingerprint strongestTokens(int maxTokens) {
+        if (maxTokens < 1) {
+            throw new IllegalArgumentException("maxTokens must be positive: " + maxTokens);
+        }
+        if (tokens.length <= maxTokens) return this;
+
+        Integer[] order = new Integer[tokens.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingInt((Integer i) -> tokens[i].length()).reversed()
+                .thenComparingInt(i -> i));
+        boolean[] keep = new boolean[tokens.length];
+        for (int i = 0; i < maxTokens; i++) {
+            keep[order[i]] = true;
+        }
+
+        StringJoiner kept = new StringJoiner(" ");
+        for (int i = 0; i < tokens.length; i++) {
+            if (keep[i]) kept.add(tokens[i]);
+        }
+        return new NameFingerprint(kept.toString());
+    }
+
+    /**
+     * @return комбинации пар слов (n выбрать 2) или единственное слово
+     */
+    public List<String> combinations() {
+        return combinations;
+    }
+
+    String[] tokens() {
+        return tokens;
+    }
+
+    /**
+     * Строит комбинации пар слов в порядке следования: каждое слово склеивается с каждым следующим за ним.
+     *
+     * @param tokens уже нормализованные слова имени
+     * @return неизменяемый список комбинаций или единственное слово
+     */
+    public static List<String> combinationsOf(String... tokens) {
+        if (tokens.length == 0) return Collections.emptyList();
+        if (tokens.length == 1) return List.of(tokens[0]);
+
+        List<String> combinations = new ArrayList<>(tokens.length * (tokens.length - 1) / 2);
+        for (int i = 0; i < tokens.length; i++) {
+            for (int j = i + 1; j < tokens.length; j++) {
+                combinations.add(tokens[i] + tokens[j]);
+            }
+        }
+        return Collections.unmodifiableList(combinations);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof NameFingerprint other)) return false;
+        return normalized.equals(other.normalized);
+    }
+
+    @Override
+    public int hashCode() {
+        return normalized.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return normalized;
+    }
+}
@@ -12,10 +12,11 @@ import java.time.LocalDate;
 @AllArgsConstructor
 @NoArgsConstructor
 @Entity
-@Table(name = "account_info")
+@Table(name = "account_info", indexes = @Index(name = "idx_account_info_loan_request_id", columnList = "loan_request_id"))
 public class AccountInfo {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "account_info_id_seq")
+    @SequenceGenerator(name = "account_info_id_seq", sequenceName = "account_info_id_seq", allocationSize = 50)
     private Long id;
 
     @Column(name = "loan_request_id")
@@ -0,0 +1,47 @@
+package ru.artq.testfintechiq.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.ColumnDefault;
+
+import java.time.OffsetDateTime;
+
+/**
+ * Порция прогона повторной обработки: диапазон id запросов {@code (fromId, toId]}
+ * и аренда экземпляра приложения, который ее обрабатывает; {@code attempts} -
+ * сколько раз порцию уже арендовали.
+ */
+@Getter
+@Setter
+@ToString
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "processing_claim")
+public class ProcessingClaim {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "run_id", nullable = false)
+    private String runId;
+
+    @Column(name = "from_id", nullable = false)
+    private Long fromId;
+
+    @Column(name = "to_id", nullable = false)
+    private Long toId;
+
+    @Column(name = "owner")
+    private String owner;
+
+    @Column(name = "lease_until")
+    private OffsetDateTime leaseUntil;
+
+    @Column(name = "completed_at")
+    private OffsetDateTime completedAt;
+
+    @ColumnDefault("0")
+    @Column(name = "attempts", nullable = false)
+    private int attempts;
+}
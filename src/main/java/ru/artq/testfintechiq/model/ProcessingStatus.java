@@ -0,0 +1,19 @@
+package ru.artq.testfintechiq.model;
+
+/**
+ * Состояние обработки сохраненного запроса.
+ */
+public enum ProcessingStatus {
+    /**
+     * Запрос сохранен, но еще не разобран.
+     */
+    NEW,
+    /**
+     * Данные запроса разобраны и сохранены.
+     */
+    PROCESSED,
+    /**
+     * Обработка завершилась ошибкой, запрос будет взят следующим прогоном.
+     */
+    FAILED
+}
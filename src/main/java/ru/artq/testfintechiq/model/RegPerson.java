@@ -2,21 +2,21 @@ package ru.artq.testfintechiq.model;
 
 import jakarta.persistence.*;
 import lombok.*;
+import ru.artq.testfintechiq.matching.NameFingerprint;
 
 @Getter
 @Setter
 @ToString
-@AllArgsConstructor
 @NoArgsConstructor
-@Builder
 @Entity
 @Table(name = "reg_person")
 public class RegPerson {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "reg_person_id_seq")
+    @SequenceGenerator(name = "reg_person_id_seq", sequenceName = "reg_person_id_seq", allocationSize = 50)
     private Long id;
 
-    @Column(name = "loan_request_id")
+    @Column(name = "loan_request_id", unique = true)
     private String loanRequestId;
 
     @Column(name = "first_name")
@@ -27,4 +27,52 @@ public class RegPerson {
 
     @Column(name = "last_name")
     private String lastName;
-}
\ No newline at end of file
+
+    @Transient
+    @ToString.Exclude
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private NameFingerprint fingerprint;
+
+    @Builder
+    public RegPerson(Long id, String loanRequestId, String firstName, String middleName, String lastName) {
+        this.id = id;
+        this.loanRequestId = loanRequestId;
+        this.firstName = firstName;
+        this.middleName = middleName;
+        this.lastName = lastName;
+    }
+
+    /**
+     * Отпечаток имени (firstName, middleName, lastName) для расчета стоп-фактора.
+     * Строится при первом обращении и сбрасывается при изменении частей имени,
+     * поэтому повторные расчеты по загруженной сущности не разбирают строки заново.
+     */
+    public NameFingerprint getFingerprint() {
+        if (fingerprint == null) fingerprint = NameFingerprint.ofParts(firstName, middleName, lastName);
+        return fingerprint;
+    }
+
+    /**
+     * Hibernate пишет поля напрямую, минуя сеттеры, в том числе при refresh.
+     */
+    @PostLoad
+    void resetFingerprint() {
+        fingerprint = null;
+    }
+
+    public void setFirstName(String firstName) {
+        this.firstName = firstName;
+        fingerprint = null;
+    }
+
+    public void setMiddleName(String middleName) {
+        this.middleName = middleName;
+        fingerprint = null;
+    }
+
+    public void setLastName(String lastName) {
+        this.lastName = lastName;
+        fingerprint = null;
+    }
+}
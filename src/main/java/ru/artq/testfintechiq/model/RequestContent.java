@@ -28,4 +28,11 @@ public class RequestContent {
 
     @Column(name = "created_at")
     private OffsetDateTime createdAt;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "processing_status", nullable = false)
+    private ProcessingStatus processingStatus = ProcessingStatus.NEW;
+
+    @Column(name = "processed_at")
+    private OffsetDateTime processedAt;
 }
\ No newline at end of file
@@ -0,0 +1,46 @@
+package ru.artq.testfintechiq.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.OffsetDateTime;
+
+/**
+ * Результат расчета стоп-фактора по заявке: максимальный коэффициент сходства
+ * и пара комбинаций, на которой он достигнут. Флаг {@code stopFactor} рассчитан
+ * для порога {@code threshold}; для другого порога достаточно сравнить с ним {@code bestRatio}.
+ */
+@Getter
+@Setter
+@ToString
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "stop_factor_result",
+        indexes = @Index(name = "idx_stop_factor_result_best_ratio", columnList = "best_ratio"))
+public class StopFactorResult {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "loan_request_id", nullable = false, unique = true)
+    private String loanRequestId;
+
+    @Column(name = "best_ratio", nullable = false)
+    private double bestRatio;
+
+    @Column(name = "reg_person_combination")
+    private String regPersonCombination;
+
+    @Column(name = "verified_name_combination")
+    private String verifiedNameCombination;
+
+    @Column(name = "threshold", nullable = false)
+    private double threshold;
+
+    @Column(name = "stop_factor", nullable = false)
+    private boolean stopFactor;
+
+    @Column(name = "computed_at")
+    private OffsetDateTime computedAt;
+}
@@ -2,21 +2,21 @@ package ru.artq.testfintechiq.model;
 
 import jakarta.persistence.*;
 import lombok.*;
+import ru.artq.testfintechiq.matching.NameFingerprint;
 
 @Getter
 @Setter
 @ToString
-@AllArgsConstructor
 @NoArgsConstructor
 @Entity
-@Builder
 @Table(name = "verified_name")
 public class VerifiedName {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "verified_name_id_seq")
+    @SequenceGenerator(name = "verified_name_id_seq", sequenceName = "verified_name_id_seq", allocationSize = 50)
     private Long id;
 
-    @Column(name = "loan_request_id")
+    @Column(name = "loan_request_id", unique = true)
     private String loanRequestId;
 
     @Column(name = "first_name")
@@ -27,4 +27,52 @@ public class VerifiedName {
 
     @Column(name = "surname")
     private String surname;
-}
\ No newline at end of file
+
+    @Transient
+    @ToString.Exclude
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private NameFingerprint fingerprint;
+
+    @Builder
+    public VerifiedName(Long id, String loanRequestId, String firstName, String otherName, String surname) {
+        this.id = id;
+        this.loanRequestId = loanRequestId;
+        this.firstName = firstName;
+        this.otherName = otherName;
+        this.surname = surname;
+    }
+
+    /**
+     * Отпечаток имени (firstName, otherName, surname) для расчета стоп-фактора.
+     * Строится при первом обращении и сбрасывается при изменении частей имени,
+     * поэтому повторные расчеты по загруженной сущности не разбирают строки заново.
+     */
+    public NameFingerprint getFingerprint() {
+        if (fingerprint == null) fingerprint = NameFingerprint.ofParts(firstName, otherName, surname);
+        return fingerprint;
+    }
+
+    /**
+     * Hibernate пишет поля напрямую, минуя сеттеры, в том числе при refresh.
+     */
+    @PostLoad
+    void resetFingerprint() {
+        fingerprint = null;
+    }
+
+    public void setFirstName(String firstName) {
+        this.firstName = firstName;
+        fingerprint = null;
+    }
+
+    public void setOtherName(String otherName) {
+        this.otherName = otherName;
+        fingerprint = null;
+    }
+
+    public void setSurname(String surname) {
+        this.surname = surname;
+        fingerprint = null;
+    }
+}
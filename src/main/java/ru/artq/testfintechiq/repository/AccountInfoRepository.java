@@ -9,4 +9,6 @@ import java.util.List;
 @Repository
 public interface AccountInfoRepository extends JpaRepository<AccountInfo, Long> {
     List<AccountInfo> findAllByLoanRequestId(String loanRequestId);
-}
\ No newline at end of file
+
+    boolean existsByLoanRequestId(String loanRequestId);
+}
@@ -0,0 +1,106 @@
+package ru.artq.testfintechiq.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import ru.artq.testfintechiq.model.ProcessingClaim;
+
+import java.util.Optional;
+
+@Repository
+public interface ProcessingClaimRepository extends JpaRepository<ProcessingClaim, Long> {
+
+    /**
+     * Транзакционная advisory-блокировка: создание прогона выполняется одним узлом.
+     */
+    @Query(value = "SELECT 1 FROM pg_advisory_xact_lock(:key)", nativeQuery = true)
+    Integer lockRuns(@Param("key") long key);
+
+    /**
+     * @return id прогона, в котором остались незавершенные и не брошенные порции, или null
+     */
+    @Query(value = """
+            SELECT run_id FROM processing_claim
+            WHERE completed_at IS NULL AND attempts < :maxAttempts
+            LIMIT 1""", nativeQuery = true)
+    String findActiveRunId(@Param("maxAttempts") int maxAttempts);
+
+    /**
+     * @return количество незавершенных и не брошенных порций прогона, включая арендованные
+     */
+    @Query(value = """
+            SELECT COUNT(*) FROM processing_claim
+            WHERE run_id = :runId AND completed_at IS NULL AND attempts < :maxAttempts""", nativeQuery = true)
+    long countIncomplete(@Param("runId") String runId, @Param("maxAttempts") int maxAttempts);
+
+    /**
+     * @return нижняя граница id прогона (не включается)
+     */
+    @Query(value = "SELECT MIN(from_id) FROM processing_claim WHERE run_id = :runId", nativeQuery = true)
+    long findRunStart(@Param("runId") String runId);
+
+    /**
+     * @return верхняя граница id прогона (включается)
+     */
+    @Query(value = "SELECT MAX(to_id) FROM processing_claim WHERE run_id = :runId", nativeQuery = true)
+    long findRunEnd(@Param("runId") String runId);
+
+    @Modifying
+    @Query(value = "DELETE FROM processing_claim WHERE completed_at IS NOT NULL", nativeQuery = true)
+    int deleteCompleted();
+
+    /**
+     * Создает порции прогона шириной {@code width} id, покрывающие диапазон {@code (afterId, toId]}.
+     *
+     * @return количество порций
+     */
+    @Modifying
+    @Query(value = """
+            INSERT INTO processing_claim (run_id, from_id, to_id)
+            SELECT :runId, g, LEAST(g + :width, :toId)
+            FROM generate_series(:afterId, :toId - 1, :width) AS s(g)""", nativeQuery = true)
+    int createRun(@Param("runId") String runId,
+                  @Param("afterId") long afterId,
+                  @Param("toId") long toId,
+                  @Param("width") long width);
+
+    /**
+     * Блокирует первую свободную порцию прогона: незавершенную, без действующей аренды
+     * и арендованную меньше {@code maxAttempts} раз.
+     * Порции, заблокированные другими узлами, пропускаются без ожидания.
+     */
+    @Query(value = """
+            SELECT * FROM processing_claim
+            WHERE run_id = :runId AND completed_at IS NULL AND attempts < :maxAttempts
+              AND (lease_until IS NULL OR lease_until < now())
+            ORDER BY id
+            LIMIT 1
+            FOR UPDATE SKIP LOCKED""", nativeQuery = true)
+    Optional<ProcessingClaim> lockNextFree(@Param("runId") String runId, @Param("maxAttempts") int maxAttempts);
+
+    @Modifying
+    @Query(value = """
+            UPDATE processing_claim
+            SET owner = :owner, lease_until = now() + CAST(:leaseSeconds AS BIGINT) * INTERVAL '1' SECOND,
+                attempts = attempts + 1
+            WHERE id = :id""", nativeQuery = true)
+    int lease(@Param("id") long id, @Param("owner") String owner, @Param("leaseSeconds") long leaseSeconds);
+
+    /**
+     * Снимает аренду этого узла, чтобы упавшую порцию можно было забрать сразу, не дожидаясь истечения.
+     */
+    @Modifying
+    @Query(value = "UPDATE processing_claim SET lease_until = NULL WHERE id = :id AND owner = :owner",
+            nativeQuery = true)
+    int release(@Param("id") long id, @Param("owner") String owner);
+
+    /**
+     * Отмечает порцию выполненной, если аренда все еще принадлежит этому узлу.
+     */
+    @Modifying
+    @Query(value = "UPDATE processing_claim SET completed_at = now() WHERE id = :id AND owner = :owner",
+            nativeQuery = true)
+    int complete(@Param("id") long id, @Param("owner") String owner);
+}
@@ -1,10 +1,44 @@
 package ru.artq.testfintechiq.repository;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import ru.artq.testfintechiq.dto.LoanNames;
 import ru.artq.testfintechiq.model.RegPerson;
 
+import java.util.List;
+
 @Repository
 public interface RegPersonRepository extends JpaRepository<RegPerson, Long> {
     RegPerson findByLoanRequestId(String loanRequestId);
-}
\ No newline at end of file
+
+    /**
+     * Следующая порция имен заявителей вместе с проверенными именами одним запросом
+     * (keyset-пагинация по id заявителя). Читаются только колонки имен.
+     */
+    @Query("""
+            SELECT new ru.artq.testfintechiq.dto.LoanNames(r.id, r.loanRequestId,
+                   r.firstName, r.middleName, r.lastName, v.firstName, v.otherName, v.surname)
+            FROM RegPerson r JOIN VerifiedName v ON v.loanRequestId = r.loanRequestId
+            WHERE r.id > :afterId
+            ORDER BY r.id""")
+    List<LoanNames> findLoanNames(@Param("afterId") Long afterId, Limit limit);
+
+    /**
+     * Сохраняет заявителя, если для loanRequestId он еще не сохранен.
+     *
+     * @return 1, если строка вставлена, 0, если она уже была
+     */
+    @Modifying
+    @Query(value = """
+            INSERT INTO reg_person (id, loan_request_id, first_name, middle_name, last_name)
+            VALUES (nextval('reg_person_id_seq'), :loanRequestId, :firstName, :middleName, :lastName)
+            ON CONFLICT DO NOTHING""", nativeQuery = true)
+    int insertIfAbsent(@Param("loanRequestId") String loanRequestId,
+                       @Param("firstName") String firstName,
+                       @Param("middleName") String middleName,
+                       @Param("lastName") String lastName);
+}
@@ -1,10 +1,80 @@
 package ru.artq.testfintechiq.repository;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import ru.artq.testfintechiq.model.RequestContent;
 
+import java.time.OffsetDateTime;
+import java.util.List;
+
 @Repository
 public interface RequestContentRepository extends JpaRepository<RequestContent, Long> {
     RequestContent findByLoanRequestId(String loanRequestId);
-}
\ No newline at end of file
+
+    /**
+     * Следующая порция необработанных запросов диапазона {@code (afterId, toId]} по возрастанию id
+     * (keyset-пагинация): в отличие от OFFSET, стоимость не растет с номером порции.
+     * Условие по статусу совпадает с частичным индексом {@code idx_request_content_pending}.
+     */
+    @Query("""
+            SELECT r FROM RequestContent r
+            WHERE r.id > :afterId AND r.id <= :toId
+              AND r.processingStatus <> ru.artq.testfintechiq.model.ProcessingStatus.PROCESSED
+            ORDER BY r.id""")
+    List<RequestContent> findPendingChunk(@Param("afterId") Long afterId, @Param("toId") Long toId, Limit limit);
+
+    @Query("""
+            SELECT MIN(r.id) FROM RequestContent r
+            WHERE r.processingStatus <> ru.artq.testfintechiq.model.ProcessingStatus.PROCESSED""")
+    Long findMinPendingId();
+
+    @Query("""
+            SELECT MAX(r.id) FROM RequestContent r
+            WHERE r.processingStatus <> ru.artq.testfintechiq.model.ProcessingStatus.PROCESSED""")
+    Long findMaxPendingId();
+
+    @Query("""
+            SELECT COUNT(r) FROM RequestContent r
+            WHERE r.processingStatus <> ru.artq.testfintechiq.model.ProcessingStatus.PROCESSED""")
+    long countPending();
+
+    @Modifying
+    @Query(value = """
+            UPDATE request_content SET processing_status = 'PROCESSED', processed_at = :processedAt
+            WHERE loan_request_id = :loanRequestId""", nativeQuery = true)
+    int markProcessed(@Param("loanRequestId") String loanRequestId, @Param("processedAt") OffsetDateTime processedAt);
+
+    @Modifying
+    @Query(value = """
+            UPDATE request_content SET processing_status = 'FAILED', processed_at = :processedAt
+            WHERE id IN (:ids)""", nativeQuery = true)
+    int markFailed(@Param("ids") List<Long> ids, @Param("processedAt") OffsetDateTime processedAt);
+
+    /**
+     * Сохраняет запрос, если запроса с таким loanRequestId еще нет.
+     *
+     * @return 1, если строка вставлена, 0, если она уже была
+     */
+    @Modifying
+    @Query(value = """
+            INSERT INTO request_content (loan_request_id, content, created_at, processing_status)
+            VALUES (:loanRequestId, CAST(:content AS jsonb), :createdAt, 'NEW')
+            ON CONFLICT DO NOTHING""", nativeQuery = true)
+    int insertIfAbsent(@Param("loanRequestId") String loanRequestId,
+                       @Param("content") String content,
+                       @Param("createdAt") OffsetDateTime createdAt);
+
+    /**
+     * Блокирует строку запроса до конца транзакции: параллельная обработка
+     * того же loanRequestId ждет ее завершения.
+     *
+     * @return id запроса или null, если запроса нет
+     */
+    @Query(value = "SELECT id FROM request_content WHERE loan_request_id = :loanRequestId FOR UPDATE",
+            nativeQuery = true)
+    Long lockByLoanRequestId(@Param("loanRequestId") String loanRequestId);
+}
@@ -0,0 +1,45 @@
+package ru.artq.testfintechiq.repository;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import ru.artq.testfintechiq.model.StopFactorResult;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface StopFactorResultRepository extends JpaRepository<StopFactorResult, Long> {
+    Optional<StopFactorResult> findByLoanRequestId(String loanRequestId);
+
+    /**
+     * Заявки со стоп-фактором для заданного порога; использует индекс по {@code best_ratio}.
+     */
+    List<StopFactorResult> findByBestRatioGreaterThanEqualOrderByBestRatioDescIdAsc(double threshold, Limit limit);
+
+    long countByBestRatioGreaterThanEqual(double threshold);
+
+    /**
+     * Сохраняет результат, если для заявки его еще нет.
+     *
+     * @return 1, если строка вставлена, 0, если она уже была
+     */
+    @Modifying
+    @Query(value = """
+            INSERT INTO stop_factor_result (loan_request_id, best_ratio, reg_person_combination,
+                                            verified_name_combination, threshold, stop_factor, computed_at)
+            VALUES (:loanRequestId, :bestRatio, :regPersonCombination,
+                    :verifiedNameCombination, :threshold, :stopFactor, :computedAt)
+            ON CONFLICT DO NOTHING""", nativeQuery = true)
+    int insertIfAbsent(@Param("loanRequestId") String loanRequestId,
+                       @Param("bestRatio") double bestRatio,
+                       @Param("regPersonCombination") String regPersonCombination,
+                       @Param("verifiedNameCombination") String verifiedNameCombination,
+                       @Param("threshold") double threshold,
+                       @Param("stopFactor") boolean stopFactor,
+                       @Param("computedAt") OffsetDateTime computedAt);
+}
@@ -1,10 +1,28 @@
 package ru.artq.testfintechiq.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import ru.artq.testfintechiq.model.VerifiedName;
 
 @Repository
 public interface VerifiedNameRepository extends JpaRepository<VerifiedName, Long> {
     VerifiedName findByLoanRequestId(String loanRequestId);
-}
\ No newline at end of file
+
+    /**
+     * Сохраняет проверенное имя, если для loanRequestId оно еще не сохранено.
+     *
+     * @return 1, если строка вставлена, 0, если она уже была
+     */
+    @Modifying
+    @Query(value = """
+            INSERT INTO verified_name (id, loan_request_id, first_name, other_name, surname)
+            VALUES (nextval('verified_name_id_seq'), :loanRequestId, :firstName, :otherName, :surname)
+            ON CONFLICT DO NOTHING""", nativeQuery = true)
+    int insertIfAbsent(@Param("loanRequestId") String loanRequestId,
+                       @Param("firstName") String firstName,
+                       @Param("otherName") String otherName,
+                       @Param("surname") String surname);
+}
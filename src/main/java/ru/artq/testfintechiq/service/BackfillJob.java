@@ -0,0 +1,115 @@
+package ru.artq.testfintechiq.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import ru.artq.testfintechiq.config.BackfillProperties;
+import ru.artq.testfintechiq.repository.RequestContentRepository;
+
+import java.time.Instant;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Фоновая обработка сохраненных запросов после старта приложения.
+ * Приложение начинает обслуживать запросы сразу, а новые и упавшие запросы
+ * обрабатываются в отдельном потоке. Контрольная точка - статус обработки
+ * каждого запроса: после перезапуска уже обработанные запросы не читаются повторно.
+ * Прогресс публикуется индикатором здоровья {@code backfill}.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class BackfillJob {
+    private final RequestProcessingService requestProcessingService;
+    private final RequestContentRepository requestContentRepository;
+    private final StopFactorResultService stopFactorResultService;
+    private final BackfillProperties properties;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(new CustomizableThreadFactory("backfill-"));
+
+    private final LongAdder processed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private volatile State state = State.PENDING;
+    private volatile long total;
+    private volatile Instant startedAt;
+    private volatile Instant finishedAt;
+    private volatile String error;
+
+    public enum State {
+        PENDING, RUNNING, COMPLETED, FAILED, DISABLED
+    }
+
+    /**
+     * Снимок прогресса обработки.
+     *
+     * @param total     количество необработанных запросов на момент запуска
+     * @param processed количество обработанных запросов, включая упавшие
+     * @param failed    количество запросов, обработанных с ошибкой
+     * @param error     сообщение ошибки, остановившей обработку
+     */
+    public record Progress(State state, long total, long processed, long failed,
+                           Instant startedAt, Instant finishedAt, String error) {
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!properties.enabled()) {
+            state = State.DISABLED;
+            log.info("Startup backfill is disabled");
+            return;
+        }
+        executor.submit(this::run);
+    }
+
+    /**
+     * Выполняет обработку в текущем потоке.
+     */
+    public void run() {
+        state = State.RUNNING;
+        startedAt = Instant.now();
+        try {
+            total = requestContentRepository.countPending();
+            log.info("Startup backfill started: {} requests pending", total);
+
+            requestProcessingService.processAllRequests((chunkProcessed, chunkFailed) -> {
+                processed.add(chunkProcessed);
+                failed.add(chunkFailed);
+            });
+
+            state = State.COMPLETED;
+            // Стоп-фактор рассчитывается и сохраняется при обработке каждой заявки
+            log.info("Startup backfill completed: {} processed, {} failed, {} loans with stop factor",
+                    processed.sum(), failed.sum(), stopFactorResultService.countStopFactors());
+        } catch (Exception e) {
+            error = e.getMessage();
+            state = State.FAILED;
+            log.error("Startup backfill failed: {}", e.getMessage(), e);
+        } finally {
+            finishedAt = Instant.now();
+        }
+    }
+
+    /**
+     * @return true, если экземпляр может принимать трафик: сразу при
+     * {@code backfill.readiness=immediate}, иначе после завершения обработки
+     */
+    public boolean isReady() {
+        if (properties.readiness() == BackfillProperties.Readiness.IMMEDIATE) return true;
+        // Упавшая обработка не должна навсегда выводить экземпляр из балансировки
+        return state == State.COMPLETED || state == State.FAILED || state == State.DISABLED;
+    }
+
+    public Progress getProgress() {
+        return new Progress(state, total, processed.sum(), failed.sum(), startedAt, finishedAt, error);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
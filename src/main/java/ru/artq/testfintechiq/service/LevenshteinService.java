@@ -1,24 +1,99 @@
 package ru.artq.testfintechiq.service;
 
-import lombok.RequiredArgsConstructor;
-import lombok.extern.slf4j.Slf4j;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.stereotype.Service;
+import ru.artq.testfintechiq.config.StopFactorProperties;
+import ru.artq.testfintechiq.dto.StopFactorExplanation;
+import ru.artq.testfintechiq.jfr.StopFactorEvent;
+import ru.artq.testfintechiq.matching.CombinationScorer;
+import ru.artq.testfintechiq.matching.LevenshteinDistance;
+import ru.artq.testfintechiq.matching.NameFingerprint;
 
-import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Сервис для расчета расстояния Левенштейна и Стоп-Фактора.
  * Реализует алгоритм сравнения строк на основе расстояния Левенштейна
  * и формирования комбинаций слов для расчета стоп-фактора.
+ * Метрики: {@code stop-factor.calculate} - время расчета с тегом {@code path}
+ * (shortcut - совпадающие имена, cached - результат из кэша, computed - перебор пар),
+ * {@code stop-factor.pairs} - пар с расчетом расстояния за вызов,
+ * {@code stop-factor.early-exit} - переборы, остановленные на найденной паре,
+ * {@code stop-factor.prefilter.rejections} - пары, отброшенные фильтрами,
+ * {@code stop-factor.budget.exceeded} - расчеты, сокращенные до бюджета {@code stop-factor.budget.max-pairs}.
+ * Медленные расчеты дополнительно пишутся событием JFR {@link StopFactorEvent}.
  */
 @Service
-@RequiredArgsConstructor
-@Slf4j
 public class LevenshteinService {
     private final SettingsService settingsService;
+    private final StopFactorCache stopFactorCache;
+    private final int maxPairs;
+
+    private final LongAdder lengthFilterRejections = new LongAdder();
+    private final LongAdder bagFilterRejections = new LongAdder();
+    private final CombinationScorer.PairFilter prefilter = this::isRejectedByPrefilters;
+
+    private final Timer shortcutTimer;
+    private final Timer cachedTimer;
+    private final Timer computedTimer;
+    private final DistributionSummary firstMatchPairs;
+    private final DistributionSummary bestMatchPairs;
+    private final Counter earlyExits;
+    private final Counter firstMatchBudgetExceeded;
+    private final Counter bestMatchBudgetExceeded;
+
+    public LevenshteinService(SettingsService settingsService, StopFactorCache stopFactorCache,
+                              StopFactorProperties properties, MeterRegistry meterRegistry) {
+        this.settingsService = settingsService;
+        this.stopFactorCache = stopFactorCache;
+        this.maxPairs = properties.budget().maxPairs();
+
+        this.shortcutTimer = calculateTimer(meterRegistry, "shortcut");
+        this.cachedTimer = calculateTimer(meterRegistry, "cached");
+        this.computedTimer = calculateTimer(meterRegistry, "computed");
+        this.firstMatchPairs = pairsSummary(meterRegistry, "first");
+        this.bestMatchPairs = pairsSummary(meterRegistry, "best");
+        this.earlyExits = Counter.builder("stop-factor.early-exit")
+                .description("Comparisons stopped at the first pair reaching the threshold")
+                .register(meterRegistry);
+        this.firstMatchBudgetExceeded = budgetCounter(meterRegistry, "first");
+        this.bestMatchBudgetExceeded = budgetCounter(meterRegistry, "best");
+        FunctionCounter.builder("stop-factor.prefilter.rejections", lengthFilterRejections, LongAdder::sum)
+                .description("Combination pairs rejected before the distance calculation")
+                .tag("filter", "length")
+                .register(meterRegistry);
+        FunctionCounter.builder("stop-factor.prefilter.rejections", bagFilterRejections, LongAdder::sum)
+                .description("Combination pairs rejected before the distance calculation")
+                .tag("filter", "bag")
+                .register(meterRegistry);
+    }
+
+    private static Timer calculateTimer(MeterRegistry meterRegistry, String path) {
+        return Timer.builder("stop-factor.calculate")
+                .description("Stop factor calculation latency")
+                .tag("path", path)
+                .register(meterRegistry);
+    }
+
+    private static Counter budgetCounter(MeterRegistry meterRegistry, String mode) {
+        return Counter.builder("stop-factor.budget.exceeded")
+                .description("Calculations reduced to the strongest tokens to fit the pair budget")
+                .tag("mode", mode)
+                .register(meterRegistry);
+    }
+
+    private static DistributionSummary pairsSummary(MeterRegistry meterRegistry, String mode) {
+        return DistributionSummary.builder("stop-factor.pairs")
+                .description("Combination pairs scored per call")
+                .tag("mode", mode)
+                .register(meterRegistry);
+    }
 
     /**
      * Рассчитывает стоп-фактор на основе сравнения всех возможных комбинаций слов
@@ -32,89 +107,199 @@ public class LevenshteinService {
     public boolean calculateStopFactor(String regPersonString, String verifiedNameString) {
         if (regPersonString == null || verifiedNameString == null) return false;
 
-        String trimmedRegPerson = regPersonString.trim();
-        String trimmedVerifiedName = verifiedNameString.trim();
-
-        if (trimmedRegPerson.isEmpty() && trimmedVerifiedName.isEmpty())
-            return true;
+        return calculateStopFactor(NameFingerprint.of(regPersonString), NameFingerprint.of(verifiedNameString));
+    }
 
-        if (trimmedRegPerson.equalsIgnoreCase(trimmedVerifiedName)) return true;
+    /**
+     * Рассчитывает стоп-фактор для заранее разобранных имен.
+     * Строки не разбираются повторно, поэтому этот вариант подходит
+     * для пакетного пересчета сохраненных данных.
+     *
+     * @param regPerson    отпечаток имени регистрационного лица
+     * @param verifiedName отпечаток проверенного имени
+     * @return true, если макс соотношение Левенштейна >= порогового значения,
+     * иначе false
+     */
+    public boolean calculateStopFactor(NameFingerprint regPerson, NameFingerprint verifiedName) {
+        if (regPerson == null || verifiedName == null) return false;
+        StopFactorEvent event = new StopFactorEvent();
+        event.begin();
+        long start = System.nanoTime();
 
-        if (containsSameWords(trimmedRegPerson, trimmedVerifiedName))
+        if ((regPerson.isEmpty() && verifiedName.isEmpty())
+                || regPerson.equalsIgnoreCase(verifiedName)
+                || regPerson.hasSameWords(verifiedName)) {
+            shortcutTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            event.complete("shortcut", regPerson, verifiedName, null, 0.0, true);
             return true;
+        }
 
-        double maxRatio = 0.0;
-        List<String> regPersonCombinations = generateWordCombinations(trimmedRegPerson.toLowerCase());
-        List<String> verifiedNameCombinations = generateWordCombinations(trimmedVerifiedName.toLowerCase());
-
-        log.debug("RegPerson Combinations: {}", regPersonCombinations);
-        log.debug("VerifiedName Combinations: {}", verifiedNameCombinations);
+        // Порог известен заранее, поэтому пары считаются в ограниченном режиме
+        SettingsSnapshot settings = settingsService.getSnapshot();
+        double target = Math.min(settings.distanceRatioThreshold(), 1.0);
 
-        // Сравниваем каждую пару комбинаций и находим макс соотношение
-        for (String regPerson : regPersonCombinations) {
-            for (String verifiedName : verifiedNameCombinations) {
-                double ratio = calculateLevenshteinRatio(regPerson, verifiedName);
-                log.debug("Comparing '{}' and '{}': ratio = {}", regPerson, verifiedName, ratio);
-                maxRatio = Math.max(maxRatio, ratio);
+        // Повторные пары (ретраи, пересчеты) берутся из кэша, пока версия настроек не сменилась
+        CombinationScorer.Stats stats = new CombinationScorer.Stats();
+        boolean stopFactor = stopFactorCache.get(regPerson, verifiedName, settings.version(),
+                () -> calculateRatio(regPerson, verifiedName, target, stats) >= target);
 
-                // если нашли полное совпадение, прерываем цикл
-                if (maxRatio >= 1.0) return true;
-            }
+        if (stats.recorded()) {
+            computedTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            firstMatchPairs.record(stats.scored());
+            if (stats.earlyExit()) earlyExits.increment();
+        } else {
+            cachedTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
         }
-
-        double threshold = settingsService.getDistanceRatioThreshold();
-        log.debug("Max Levenshtein Ratio: {}, Threshold: {}", maxRatio, threshold);
-        return maxRatio >= threshold;
+        event.complete(stats.recorded() ? "computed" : "cached", regPerson, verifiedName, stats, target, stopFactor);
+        return stopFactor;
     }
 
     /**
-     * Проверяет, содержат ли две строки одинаковые слова (независимо от порядка)
+     * Находит пару комбинаций с максимальным коэффициентом сходства.
+     * В отличие от {@link #calculateStopFactor(NameFingerprint, NameFingerprint)}, не зависит
+     * от порога: стоп-фактор для любого порога t равен {@code ratio >= t}.
      *
-     * @param str1 первая строка
-     * @param str2 вторая строка
-     * @return true, если строки содержат одинаковые слова, иначе false
+     * @param regPerson    отпечаток имени регистрационного лица
+     * @param verifiedName отпечаток проверенного имени
+     * @return лучшая пара; для совпадающих имен - коэффициент 1 и нормализованные имена
      */
-    private boolean containsSameWords(String str1, String str2) {
-        // Разбиваем строки на слова, сортируем и объединяем снова для сравнения
-        String sortedStr1 = Arrays.stream(str1.toLowerCase().split("\\s+"))
-                .sorted()
-                .collect(Collectors.joining(" "));
-
-        String sortedStr2 = Arrays.stream(str2.toLowerCase().split("\\s+"))
-                .sorted()
-                .collect(Collectors.joining(" "));
+    public CombinationScorer.Match calculateBestMatch(NameFingerprint regPerson, NameFingerprint verifiedName) {
+        if (regPerson == null || verifiedName == null) return CombinationScorer.Match.NONE;
 
-        return sortedStr1.equals(sortedStr2);
+        if ((regPerson.isEmpty() && verifiedName.isEmpty())
+                || regPerson.equalsIgnoreCase(verifiedName)
+                || regPerson.hasSameWords(verifiedName)) {
+            return new CombinationScorer.Match(1.0, regPerson.normalized(), verifiedName.normalized());
+        }
+        if (exceedsBudget(regPerson, verifiedName)) {
+            bestMatchBudgetExceeded.increment();
+            NameFingerprint[] reduced = reduceToBudget(regPerson, verifiedName);
+            regPerson = reduced[0];
+            verifiedName = reduced[1];
+        }
+        CombinationScorer.Stats stats = new CombinationScorer.Stats();
+        CombinationScorer.Match match = CombinationScorer.bestMatch(regPerson, verifiedName, prefilter, stats);
+        bestMatchPairs.record(stats.scored());
+        return match;
     }
 
     /**
-     * Генерирует все возможные комбинации из пар слов во входной строке.
-     * Если строка содержит только одно слово, возвращает список с этим словом.
+     * Разбирает расчет стоп-фактора для пары имен: причину результата и точные коэффициенты
+     * всех пар комбинаций. Пары считаются без фильтров и досрочного выхода, поэтому
+     * метод медленнее {@link #calculateStopFactor(NameFingerprint, NameFingerprint)}
+     * и предназначен для отдельных заявок.
      *
-     * @param input входная строка со словами, разделенными пробелами
-     * @return список всех возможных комбинаций пар слов
+     * @param regPerson    отпечаток имени регистрационного лица
+     * @param verifiedName отпечаток проверенного имени
+     * @return разбор расчета для текущего порога
      */
-    public List<String> generateWordCombinations(String input) {
-        if (input == null || input.trim().isEmpty()) {
-            return new ArrayList<>();
-        }
+    public StopFactorExplanation explain(NameFingerprint regPerson, NameFingerprint verifiedName) {
+        double threshold = Math.min(settingsService.getSnapshot().distanceRatioThreshold(), 1.0);
+        // Пары считаются так же, как в расчете: длинные имена сокращаются до бюджета
+        boolean budgetExceeded = exceedsBudget(regPerson, verifiedName);
+        NameFingerprint[] scored = budgetExceeded
+                ? reduceToBudget(regPerson, verifiedName)
+                : new NameFingerprint[]{regPerson, verifiedName};
+        List<CombinationScorer.PairScore> pairs = CombinationScorer.explain(scored[0], scored[1]);
 
-        String[] words = input.trim().split("\\s+");
-        List<String> combinations = new ArrayList<>();
+        // Совпадающие имена дают стоп-фактор без перебора, как и в calculateStopFactor
+        StopFactorExplanation.Reason reason = null;
+        if (regPerson.isEmpty() && verifiedName.isEmpty()) {
+            reason = StopFactorExplanation.Reason.EMPTY_NAMES;
+        } else if (regPerson.equalsIgnoreCase(verifiedName)) {
+            reason = StopFactorExplanation.Reason.EQUAL_NAMES;
+        } else if (regPerson.hasSameWords(verifiedName)) {
+            reason = StopFactorExplanation.Reason.SAME_WORDS;
+        }
+        double bestRatio = reason != null ? 1.0 : pairs.isEmpty() ? 0.0 : pairs.get(0).ratio();
+        if (reason == null) {
+            reason = bestRatio >= threshold
+                    ? StopFactorExplanation.Reason.PAIR_ABOVE_THRESHOLD
+                    : StopFactorExplanation.Reason.NO_PAIR_ABOVE_THRESHOLD;
+        }
+        return new StopFactorExplanation(regPerson.normalized(), verifiedName.normalized(), reason,
+                bestRatio, threshold, bestRatio >= threshold, budgetExceeded, pairs);
+    }
 
-        if (words.length == 1) {
-            combinations.add(words[0]);
-            return combinations;
+    private double calculateRatio(NameFingerprint regPerson, NameFingerprint verifiedName, double target,
+                                  CombinationScorer.Stats stats) {
+        if (exceedsBudget(regPerson, verifiedName)) {
+            firstMatchBudgetExceeded.increment();
+            NameFingerprint[] reduced = reduceToBudget(regPerson, verifiedName);
+            regPerson = reduced[0];
+            verifiedName = reduced[1];
         }
+        // Сравниваем каждую пару комбинаций; префиксы общих слов считаются один раз.
+        // Как только порог (или полное совпадение) достигнут, результат уже известен.
+        // Пары не логируются: разбор отдельной заявки дает explain()
+        return CombinationScorer.firstMatchRatio(regPerson, verifiedName, target, prefilter, stats);
+    }
 
-        // Генерация всех возможных пар слов (n выбрать 2)
-        for (int i = 0; i < words.length; i++) {
-            for (int j = i + 1; j < words.length; j++) {
-                combinations.add(words[i] + words[j]);
+    private boolean exceedsBudget(NameFingerprint regPerson, NameFingerprint verifiedName) {
+        return maxPairs > 0
+                && (long) regPerson.combinations().size() * verifiedName.combinations().size() > maxPairs;
+    }
+
+    /**
+     * Сокращает имена до бюджета пар: у имени с большим числом слов (при равенстве - у первого)
+     * по одному отбрасываются самые слабые слова {@link NameFingerprint#strongestTokens(int)},
+     * пока количество пар комбинаций не уложится в {@code stop-factor.budget.max-pairs}.
+     * Результат зависит только от имен и бюджета, поэтому повторный расчет дает тот же ответ.
+     *
+     * @return сокращенные отпечатки: регистрационного лица и проверенного имени
+     */
+    private NameFingerprint[] reduceToBudget(NameFingerprint regPerson, NameFingerprint verifiedName) {
+        int regPersonWords = regPerson.wordCount();
+        int verifiedNameWords = verifiedName.wordCount();
+        while (combinationCount(regPersonWords) * combinationCount(verifiedNameWords) > maxPairs
+                && (regPersonWords > 1 || verifiedNameWords > 1)) {
+            if (regPersonWords >= verifiedNameWords) {
+                regPersonWords--;
+            } else {
+                verifiedNameWords--;
             }
         }
+        return new NameFingerprint[]{
+                regPerson.strongestTokens(regPersonWords),
+                verifiedName.strongestTokens(verifiedNameWords)
+        };
+    }
+
+    private static long combinationCount(int words) {
+        return words <= 1 ? words : (long) words * (words - 1) / 2;
+    }
 
-        return combinations;
+    /**
+     * Количество пар, отброшенных фильтром по разнице длин.
+     */
+    public long getLengthFilterRejections() {
+        return lengthFilterRejections.sum();
+    }
+
+    /**
+     * Количество пар, отброшенных фильтром по гистограммам символов.
+     */
+    public long getBagFilterRejections() {
+        return bagFilterRejections.sum();
+    }
+
+    /**
+     * Дешевые проверки перед расчетом расстояния: разница длин и мешочное расстояние
+     * дают нижнюю границу расстояния Левенштейна. Если даже она больше
+     * максимального полезного расстояния, пара заведомо не повлияет на результат.
+     *
+     * @return true, если пару можно не сравнивать
+     */
+    private boolean isRejectedByPrefilters(CharSequence s1, CharSequence s2, int maxDistance) {
+        if (Math.abs(s1.length() - s2.length()) > maxDistance) {
+            lengthFilterRejections.increment();
+            return true;
+        }
+        if (LevenshteinDistance.bagDistance(s1, s2) > maxDistance) {
+            bagFilterRejections.increment();
+            return true;
+        }
+        return false;
     }
 
     /**
@@ -135,7 +320,8 @@ public class LevenshteinService {
 
     /**
      * Вычисляет расстояние Левенштейна между двумя строками.
-     * Реализован алгоритм с использованием динамического программирования.
+     * Использует битово-параллельное ядро {@link LevenshteinDistance} с буферами потока,
+     * поэтому вызов не выделяет память под матрицу.
      *
      * @param s1 первая строка
      * @param s2 вторая строка
@@ -143,30 +329,6 @@ public class LevenshteinService {
      * необходимых для превращения одной строки в другую
      */
     private int calculateLevenshteinDistance(String s1, String s2) {
-        if (s1.isEmpty()) return s2.length();
-        if (s2.isEmpty()) return s1.length();
-
-        int[][] dp = new int[s1.length() + 1][s2.length() + 1];
-
-        // Инициализация базовых случаев
-        for (int i = 0; i <= s1.length(); i++) {
-            dp[i][0] = i;
-        }
-        for (int j = 0; j <= s2.length(); j++) {
-            dp[0][j] = j;
-        }
-
-        // Заполнение матрицы
-        for (int i = 1; i <= s1.length(); i++) {
-            for (int j = 1; j <= s2.length(); j++) {
-                int cost = (s1.charAt(i - 1) == s2.charAt(j - 1)) ? 0 : 1;
-                dp[i][j] = Math.min(
-                        Math.min(dp[i - 1][j] + 1, dp[i][j - 1] + 1),
-                        dp[i - 1][j - 1] + cost
-                );
-            }
-        }
-
-        return dp[s1.length()][s2.length()];
+        return LevenshteinDistance.distance(s1, s2);
     }
 }
\ No newline at end of file
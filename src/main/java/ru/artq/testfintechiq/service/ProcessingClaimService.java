@@ -0,0 +1,151 @@
+package ru.artq.testfintechiq.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.artq.testfintechiq.config.ProcessingProperties;
+import ru.artq.testfintechiq.model.ProcessingClaim;
+import ru.artq.testfintechiq.repository.ProcessingClaimRepository;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Распределение повторной обработки между экземплярами приложения.
+ * Прогон - набор порций (диапазонов id) в таблице {@code processing_claim}.
+ * Узел, вызвавший обработку, присоединяется к незавершенному прогону или создает новый,
+ * а затем забирает свободные порции через {@code FOR UPDATE SKIP LOCKED}, поэтому
+ * узлы обрабатывают непересекающиеся диапазоны. Порция арендуется на
+ * {@code processing.claim.lease}; порции упавшего узла после истечения аренды забирают другие.
+ * Порция, арендованная {@code processing.claim.max-attempts} раз и так и не завершенная,
+ * считается брошенной и не держит прогон незавершенным.
+ */
+@Service
+@Slf4j
+public class ProcessingClaimService {
+    /**
+     * Ключ advisory-блокировки создания прогона.
+     */
+    private static final long RUN_LOCK_KEY = 0x7265_7072_6f63L;
+
+    private final ProcessingClaimRepository processingClaimRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final long leaseSeconds;
+    private final int maxAttempts;
+    private final Duration pollInterval;
+    private final String owner;
+
+    public ProcessingClaimService(ProcessingClaimRepository processingClaimRepository,
+                                  TransactionTemplate transactionTemplate,
+                                  ProcessingProperties properties) {
+        this.processingClaimRepository = processingClaimRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.leaseSeconds = Math.max(1, properties.claim().lease().toSeconds());
+        this.maxAttempts = Math.max(1, properties.claim().maxAttempts());
+        this.pollInterval = properties.claim().pollInterval();
+        String configuredOwner = properties.claim().owner();
+        this.owner = configuredOwner == null || configuredOwner.isBlank()
+                ? ManagementFactory.getRuntimeMXBean().getName() + "-" + UUID.randomUUID().toString().substring(0, 8)
+                : configuredOwner;
+    }
+
+    /**
+     * Возвращает незавершенный прогон или создает новый с порциями шириной {@code width} id.
+     * Если незавершенный прогон не покрывает диапазон вызывающего узла, в него добавляются
+     * порции для недостающих частей диапазона. Завершенные прогоны при этом удаляются.
+     *
+     * @param afterId нижняя граница id (не включается)
+     * @param toId    верхняя граница id (включается)
+     * @param width   ширина порции в id
+     * @return id прогона
+     */
+    public String joinOrStartRun(long afterId, long toId, int width) {
+        return transactionTemplate.execute(status -> {
+            processingClaimRepository.lockRuns(RUN_LOCK_KEY);
+
+            String active = processingClaimRepository.findActiveRunId(maxAttempts);
+            if (active != null) {
+                extendRun(active, afterId, toId, width);
+                log.info("Joining processing run {} as {}", active, owner);
+                return active;
+            }
+
+            processingClaimRepository.deleteCompleted();
+            String runId = UUID.randomUUID().toString();
+            int claims = processingClaimRepository.createRun(runId, afterId, toId, width);
+            log.info("Started processing run {} with {} claims for ids ({}, {}] as {}",
+                    runId, claims, afterId, toId, owner);
+            return runId;
+        });
+    }
+
+    private void extendRun(String runId, long afterId, long toId, int width) {
+        long runStart = processingClaimRepository.findRunStart(runId);
+        long runEnd = processingClaimRepository.findRunEnd(runId);
+        int claims = 0;
+        if (afterId < runStart) {
+            claims += processingClaimRepository.createRun(runId, afterId, Math.min(runStart, toId), width);
+        }
+        if (toId > runEnd) {
+            claims += processingClaimRepository.createRun(runId, Math.max(runEnd, afterId), toId, width);
+        }
+        if (claims > 0) {
+            log.info("Extended processing run {} with {} claims for ids ({}, {}]", runId, claims, afterId, toId);
+        }
+    }
+
+    /**
+     * Арендует следующую свободную порцию прогона.
+     *
+     * @return порция или пусто, если свободных порций сейчас нет
+     */
+    public Optional<ProcessingClaim> claimNext(String runId) {
+        return transactionTemplate.execute(status -> {
+            Optional<ProcessingClaim> claim = processingClaimRepository.lockNextFree(runId, maxAttempts);
+            claim.ifPresent(c -> processingClaimRepository.lease(c.getId(), owner, leaseSeconds));
+            return claim;
+        });
+    }
+
+    /**
+     * Отмечает порцию выполненной. Если аренда уже истекла и порцию забрал другой узел,
+     * отметку поставит он: обработка идемпотентна, повтор безопасен.
+     */
+    public void complete(ProcessingClaim claim) {
+        Integer updated = transactionTemplate.execute(status ->
+                processingClaimRepository.complete(claim.getId(), owner));
+        if (updated == null || updated == 0) {
+            log.warn("Lease on claim {} expired before completion, it will be processed again", claim.getId());
+        }
+    }
+
+    /**
+     * Снимает аренду с порции, обработка которой упала, чтобы ее сразу мог забрать любой узел.
+     */
+    public void release(ProcessingClaim claim) {
+        transactionTemplate.executeWithoutResult(status ->
+                processingClaimRepository.release(claim.getId(), owner));
+    }
+
+    /**
+     * @return остались ли в прогоне незавершенные порции, в том числе арендованные другими узлами
+     */
+    public boolean hasIncomplete(String runId) {
+        Long incomplete = transactionTemplate.execute(status ->
+                processingClaimRepository.countIncomplete(runId, maxAttempts));
+        return incomplete != null && incomplete > 0;
+    }
+
+    /**
+     * @return пауза между проверками, пока оставшиеся порции арендованы другими узлами
+     */
+    public Duration getPollInterval() {
+        return pollInterval;
+    }
+
+    public String getOwner() {
+        return owner;
+    }
+}
@@ -0,0 +1,279 @@
+package ru.artq.testfintechiq.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.stereotype.Component;
+import ru.artq.testfintechiq.model.AccountInfo;
+import ru.artq.testfintechiq.model.RegPerson;
+import ru.artq.testfintechiq.model.VerifiedName;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Потоковый разбор JSON запроса за один проход по токенам {@link JsonParser}.
+ * Дерево {@code JsonNode} не строится: из документа извлекаются только
+ * loanRequestID, regPerson, verified_name (в корне или в creditBureau)
+ * и creditBureau.account_info, остальные поля пропускаются целиком.
+ * Числа и даты читаются из буфера парсера без промежуточных строк.
+ */
+@Component
+public class RequestContentParser {
+    private final JsonFactory jsonFactory;
+
+    public RequestContentParser(ObjectMapper objectMapper) {
+        this.jsonFactory = objectMapper.getFactory();
+    }
+
+    /**
+     * Данные запроса, извлеченные из JSON.
+     *
+     * @param loanRequestId идентификатор заявки или null, если поля нет
+     * @param regPerson     данные заявителя или null, если блока нет
+     * @param verifiedName  проверенное имя или null, если блока нет
+     * @param accounts      счета кредитного бюро или null, если account_info не массив
+     */
+    public record ParsedRequest(String loanRequestId,
+                                RegPerson regPerson,
+                                VerifiedName verifiedName,
+                                List<AccountInfo> accounts) {
+    }
+
+    public ParsedRequest parse(String jsonContent) throws IOException {
+        try (JsonParser parser = jsonFactory.createParser(jsonContent)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return new ParsedRequest(null, null, null, null);
+            }
+
+            String loanRequestId = null;
+            RegPerson regPerson = null;
+            VerifiedName verifiedName = null;
+            VerifiedName bureauVerifiedName = null;
+            List<AccountInfo> accounts = null;
+
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                parser.nextToken();
+                switch (field) {
+                    case "loanRequestID" -> loanRequestId = readText(parser);
+                    case "regPerson" -> regPerson = readRegPerson(parser);
+                    case "verified_name" -> verifiedName = readVerifiedName(parser);
+                    case "creditBureau" -> {
+                        if (parser.currentToken() != JsonToken.START_OBJECT) {
+                            parser.skipChildren();
+                            break;
+                        }
+                        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                            String bureauField = parser.currentName();
+                            parser.nextToken();
+                            switch (bureauField) {
+                                case "verified_name" -> bureauVerifiedName = readVerifiedName(parser);
+                                case "account_info" -> accounts = readAccounts(parser);
+                                default -> parser.skipChildren();
+                            }
+                        }
+                    }
+                    default -> parser.skipChildren();
+                }
+            }
+
+            // verified_name в корне документа важнее, чем в creditBureau
+            if (verifiedName == null) verifiedName = bureauVerifiedName;
+            if (loanRequestId != null) {
+                if (regPerson != null) regPerson.setLoanRequestId(loanRequestId);
+                if (verifiedName != null) verifiedName.setLoanRequestId(loanRequestId);
+                if (accounts != null) {
+                    for (AccountInfo account : accounts) {
+                        account.setLoanRequestId(loanRequestId);
+                    }
+                }
+            }
+            return new ParsedRequest(loanRequestId, regPerson, verifiedName, accounts);
+        }
+    }
+
+    private RegPerson readRegPerson(JsonParser parser) throws IOException {
+        RegPerson regPerson = new RegPerson();
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return regPerson;
+        }
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            switch (field) {
+                case "firstName" -> regPerson.setFirstName(readText(parser));
+                case "middleName" -> regPerson.setMiddleName(readText(parser));
+                case "lastName" -> regPerson.setLastName(readText(parser));
+                default -> parser.skipChildren();
+            }
+        }
+        return regPerson;
+    }
+
+    private VerifiedName readVerifiedName(JsonParser parser) throws IOException {
+        VerifiedName verifiedName = new VerifiedName();
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return verifiedName;
+        }
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            switch (field) {
+                case "first_name" -> verifiedName.setFirstName(readText(parser));
+                case "other_name" -> verifiedName.setOtherName(readText(parser));
+                case "surname" -> verifiedName.setSurname(readText(parser));
+                default -> parser.skipChildren();
+            }
+        }
+        return verifiedName;
+    }
+
+    private List<AccountInfo> readAccounts(JsonParser parser) throws IOException {
+        if (parser.currentToken() != JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return null;
+        }
+        List<AccountInfo> accounts = new ArrayList<>();
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            accounts.add(readAccount(parser));
+        }
+        return accounts;
+    }
+
+    private AccountInfo readAccount(JsonParser parser) throws IOException {
+        AccountInfo account = new AccountInfo();
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return account;
+        }
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            switch (field) {
+                case "account_number" -> account.setAccountNumber(readText(parser));
+                case "account_status" -> account.setAccountStatus(readText(parser));
+                case "current_balance" -> account.setCurrentBalance(readDecimal(parser));
+                case "date_opened" -> account.setDateOpened(readDate(parser));
+                case "days_in_arrears" -> account.setDaysInArrears(readInteger(parser));
+                case "delinquency_code" -> account.setDelinquencyCode(readText(parser));
+                case "highest_days_in_arrears" -> account.setHighestDaysInArrears(readInteger(parser));
+                case "is_your_account" -> account.setIsYourAccount(readBoolean(parser));
+                case "last_payment_amount" -> account.setLastPaymentAmount(readDecimal(parser));
+                case "last_payment_date" -> account.setLastPaymentDate(readDate(parser));
+                case "loaded_at" -> account.setLoadedAt(readDate(parser));
+                case "original_amount" -> account.setOriginalAmount(readDecimal(parser));
+                case "overdue_balance" -> account.setOverdueBalance(readDecimal(parser));
+                case "overdue_date" -> account.setOverdueDate(readDate(parser));
+                case "product_type_id" -> account.setProductTypeId(readInteger(parser));
+                default -> parser.skipChildren();
+            }
+        }
+        return account;
+    }
+
+    /**
+     * Текст скалярного значения; у объектов и массивов текста нет (пустая строка).
+     */
+    private static String readText(JsonParser parser) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token == JsonToken.VALUE_NULL) return null;
+        if (token.isStructStart()) {
+            parser.skipChildren();
+            return "";
+        }
+        return parser.getText();
+    }
+
+    private static BigDecimal readDecimal(JsonParser parser) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token.isNumeric()) return parser.getDecimalValue();
+        if (token != JsonToken.VALUE_STRING) {
+            parser.skipChildren();
+            return null;
+        }
+        try {
+            char[] chars = parser.getTextCharacters();
+            int offset = parser.getTextOffset();
+            int length = parser.getTextLength();
+            for (int i = offset; i < offset + length; i++) {
+                // Редкий случай значения в лишних кавычках
+                if (chars[i] == '"') return new BigDecimal(parser.getText().replace("\"", ""));
+            }
+            return new BigDecimal(chars, offset, length);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static Integer readInteger(JsonParser parser) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token == JsonToken.VALUE_NULL) return null;
+        if (token.isStructStart()) {
+            parser.skipChildren();
+            return 0;
+        }
+        return parser.getValueAsInt(0);
+    }
+
+    private static Boolean readBoolean(JsonParser parser) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token == JsonToken.VALUE_NULL) return null;
+        if (token.isStructStart()) {
+            parser.skipChildren();
+            return false;
+        }
+        return parser.getValueAsBoolean(false);
+    }
+
+    /**
+     * Дата в формате yyyy-MM-dd разбирается прямо из символов буфера,
+     * остальные строки - через {@link LocalDate#parse}.
+     */
+    private static LocalDate readDate(JsonParser parser) throws IOException {
+        if (parser.currentToken() != JsonToken.VALUE_STRING) {
+            parser.skipChildren();
+            return null;
+        }
+        char[] chars = parser.getTextCharacters();
+        int offset = parser.getTextOffset();
+        int length = parser.getTextLength();
+        if (length == 10 && chars[offset + 4] == '-' && chars[offset + 7] == '-') {
+            int year = digits(chars, offset, 4);
+            int month = digits(chars, offset + 5, 2);
+            int day = digits(chars, offset + 8, 2);
+            if (year >= 0 && month >= 0 && day >= 0) {
+                try {
+                    return LocalDate.of(year, month, day);
+                } catch (DateTimeException e) {
+                    return null;
+                }
+            }
+        }
+        String text = parser.getText();
+        if (text.equals("null")) return null;
+        try {
+            return LocalDate.parse(text);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    private static int digits(char[] chars, int offset, int count) {
+        int value = 0;
+        for (int i = offset; i < offset + count; i++) {
+            int digit = chars[i] - '0';
+            if (digit < 0 || digit > 9) return -1;
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+}
@@ -1,13 +1,24 @@
 package ru.artq.testfintechiq.service;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceException;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.artq.testfintechiq.config.ProcessingProperties;
 import ru.artq.testfintechiq.exception.BadRequestException;
+import ru.artq.testfintechiq.jfr.RequestProcessedEvent;
 import ru.artq.testfintechiq.model.AccountInfo;
+import ru.artq.testfintechiq.model.ProcessingClaim;
+import ru.artq.testfintechiq.model.ProcessingStatus;
 import ru.artq.testfintechiq.model.RegPerson;
 import ru.artq.testfintechiq.model.RequestContent;
 import ru.artq.testfintechiq.model.VerifiedName;
@@ -16,38 +27,307 @@ import ru.artq.testfintechiq.repository.RegPersonRepository;
 import ru.artq.testfintechiq.repository.RequestContentRepository;
 import ru.artq.testfintechiq.repository.VerifiedNameRepository;
 
-import java.math.BigDecimal;
-import java.time.LocalDate;
+import java.io.IOException;
 import java.time.OffsetDateTime;
-import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 
 @Service
-@RequiredArgsConstructor
 @Slf4j
 public class RequestProcessingService {
     private final RequestContentRepository requestContentRepository;
     private final RegPersonRepository regPersonRepository;
     private final VerifiedNameRepository verifiedNameRepository;
     private final AccountInfoRepository accountInfoRepository;
-    private final ObjectMapper objectMapper;
+    private final RequestContentParser requestContentParser;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ProcessingProperties processingProperties;
+    private final TransactionTemplate transactionTemplate;
+    private final EntityManager entityManager;
+    private final MeterRegistry meterRegistry;
+    private final ProcessingClaimService processingClaimService;
+    private final StopFactorResultService stopFactorResultService;
+    private final Map<Stage, Timer> stageTimers = new EnumMap<>(Stage.class);
 
-    @Transactional
+    /**
+     * Этапы обработки одного документа - значения тега {@code stage} таймера {@code processing.stage}.
+     */
+    private enum Stage {
+        PARSE("parse"),
+        REQUEST_CONTENT("request_content"),
+        REG_PERSON("reg_person"),
+        VERIFIED_NAME("verified_name"),
+        ACCOUNT_INFO("account_info"),
+        STOP_FACTOR_RESULT("stop_factor_result"),
+        MARK_PROCESSED("mark_processed");
+
+        private final String tag;
+
+        Stage(String tag) {
+            this.tag = tag;
+        }
+    }
+
+    public RequestProcessingService(RequestContentRepository requestContentRepository,
+                                    RegPersonRepository regPersonRepository,
+                                    VerifiedNameRepository verifiedNameRepository,
+                                    AccountInfoRepository accountInfoRepository,
+                                    RequestContentParser requestContentParser,
+                                    ApplicationEventPublisher eventPublisher,
+                                    ProcessingProperties processingProperties,
+                                    TransactionTemplate transactionTemplate,
+                                    EntityManager entityManager,
+                                    MeterRegistry meterRegistry,
+                                    ProcessingClaimService processingClaimService,
+                                    StopFactorResultService stopFactorResultService) {
+        this.requestContentRepository = requestContentRepository;
+        this.regPersonRepository = regPersonRepository;
+        this.verifiedNameRepository = verifiedNameRepository;
+        this.accountInfoRepository = accountInfoRepository;
+        this.requestContentParser = requestContentParser;
+        this.eventPublisher = eventPublisher;
+        this.processingProperties = processingProperties;
+        this.transactionTemplate = transactionTemplate;
+        this.entityManager = entityManager;
+        this.meterRegistry = meterRegistry;
+        this.processingClaimService = processingClaimService;
+        this.stopFactorResultService = stopFactorResultService;
+
+        for (Stage stage : Stage.values()) {
+            stageTimers.put(stage, Timer.builder("processing.stage")
+                    .description("Request processing stage latency")
+                    .tag("stage", stage.tag)
+                    .register(meterRegistry));
+        }
+    }
+
+    /**
+     * Обрабатывает сохраненные запросы, которые еще не обработаны или обработаны с ошибкой
+     * ({@link ProcessingStatus#NEW}, {@link ProcessingStatus#FAILED}), порциями по {@code processing.chunk-size}.
+     * Уже обработанные запросы не читаются, поэтому повторный вызов без новых данных ничего не делает.
+     * Порции читаются по возрастанию id после последнего обработанного (keyset-пагинация),
+     * каждая обрабатывается в своей транзакции, после чего контекст персистентности
+     * очищается. Память и длительность транзакции не зависят от размера таблицы.
+     * При {@code processing.parallelism} больше 1 диапазон id делится на равные части,
+     * и каждая обрабатывается своим потоком; ошибка в одной части не останавливает остальные.
+     * При {@code processing.claim.enabled} порции распределяются между всеми экземплярами
+     * приложения через {@link ProcessingClaimService}; вызов завершается, когда в общем прогоне
+     * не остается незавершенных порций, включая арендованные другими узлами.
+     */
     public void processAllRequests() {
+        processAllRequests(ProgressListener.NONE);
+    }
+
+    /**
+     * Обрабатывает необработанные запросы, как {@link #processAllRequests()},
+     * и сообщает слушателю о каждой зафиксированной порции.
+     *
+     * @param listener слушатель прогресса; вызывается из потоков обработки
+     */
+    public void processAllRequests(ProgressListener listener) {
         try {
-            List<RequestContent> requests = requestContentRepository.findAll();
-            for (RequestContent request : requests) {
-                try {
-                    processRequestContent(request.getContent());
-                } catch (Exception e) {
-                    log.error("Error processing request: {} - {}", request.getLoanRequestId(), e.getMessage(), e);
+            Long minId = requestContentRepository.findMinPendingId();
+            if (minId == null) {
+                log.info("No new or failed requests to process");
+                return;
+            }
+            long maxId = requestContentRepository.findMaxPendingId();
+            int parallelism = Math.max(1, processingProperties.parallelism());
+            String mode = parallelism > 1 ? "parallel" : "sequential";
+            RunStats stats = new RunStats(mode, listener);
+
+            // Имя потока -> работа: части диапазона id или разбор порций общего прогона узлов
+            Map<String, Runnable> workers = new LinkedHashMap<>();
+            if (processingProperties.claim().enabled()) {
+                String runId = processingClaimService.joinOrStartRun(minId - 1, maxId,
+                        processingProperties.chunkSize());
+                for (int i = 0; i < parallelism; i++) {
+                    workers.put("claims " + i, () -> processClaims(runId, stats));
                 }
+            } else {
+                for (IdRange partition : IdRange.split(minId - 1, maxId, parallelism)) {
+                    workers.put("partition " + partition, () -> processRange(partition, stats));
+                }
+            }
+
+            long startedAt = System.nanoTime();
+            if (workers.size() == 1) {
+                workers.values().iterator().next().run();
+            } else {
+                processInParallel(workers, stats);
             }
+            long elapsed = System.nanoTime() - startedAt;
+            meterRegistry.timer("processing.run", "mode", mode).record(elapsed, TimeUnit.NANOSECONDS);
+
+            long processed = stats.processed.sum();
+            log.info("All requests processed: {} total, {} failed, {} partitions failed, {} requests/s",
+                    processed, stats.failed.sum(), stats.failedPartitions.sum(),
+                    elapsed == 0 ? processed : processed * 1_000_000_000L / elapsed);
         } catch (Exception e) {
+            if (e instanceof InterruptedException) Thread.currentThread().interrupt();
             throw new BadRequestException("Error processing all requests: " + e.getMessage(), e);
         }
     }
 
+    private void processInParallel(Map<String, Runnable> workers, RunStats stats) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(workers.size(),
+                new CustomizableThreadFactory("processing-"));
+        try {
+            Map<String, Future<?>> futures = new LinkedHashMap<>();
+            workers.forEach((name, worker) -> futures.put(name, executor.submit(worker)));
+            for (Map.Entry<String, Future<?>> future : futures.entrySet()) {
+                try {
+                    future.getValue().get();
+                } catch (ExecutionException e) {
+                    // Уже зафиксированные порции остаются, остальные потоки продолжают работу
+                    partitionFailed(stats, future.getKey(), e.getCause());
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Забирает и обрабатывает порции общего прогона, пока в нем не останется незавершенных.
+     * Если свободных порций нет, а часть еще арендована другими узлами, ждет их завершения
+     * или истечения аренды: порции упавшего узла достанутся этому.
+     * Порция, обработка которой упала, не отмечается выполненной, аренда с нее снимается,
+     * и ее забирает следующий свободный поток любого узла.
+     */
+    private void processClaims(String runId, RunStats stats) {
+        while (true) {
+            Optional<ProcessingClaim> next = processingClaimService.claimNext(runId);
+            if (next.isEmpty()) {
+                if (!processingClaimService.hasIncomplete(runId)) return;
+                awaitLeases(runId);
+                continue;
+            }
+            ProcessingClaim claim = next.get();
+            IdRange range = new IdRange(claim.getId(), claim.getFromId(), claim.getToId());
+            try {
+                processRange(range, stats);
+                processingClaimService.complete(claim);
+            } catch (RuntimeException e) {
+                processingClaimService.release(claim);
+                partitionFailed(stats, "claim " + range, e);
+            }
+        }
+    }
+
+    private void awaitLeases(String runId) {
+        log.debug("Waiting for claims of run {} leased by other nodes", runId);
+        try {
+            Thread.sleep(processingClaimService.getPollInterval().toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for processing run " + runId, e);
+        }
+    }
+
+    private void partitionFailed(RunStats stats, String name, Throwable cause) {
+        stats.failedPartitions.increment();
+        meterRegistry.counter("processing.partitions.failed").increment();
+        log.error("Processing of {} failed: {}", name, cause.getMessage(), cause);
+    }
+
+    private void processRange(IdRange range, RunStats stats) {
+        int chunkSize = processingProperties.chunkSize();
+        long afterId = range.afterId();
+        long processed = 0;
+        long failed = 0;
+
+        List<RequestContent> chunk;
+        do {
+            chunk = requestContentRepository.findPendingChunk(afterId, range.toId(), Limit.of(chunkSize));
+            if (chunk.isEmpty()) break;
+
+            int chunkFailed = processChunk(chunk);
+            processed += chunk.size();
+            failed += chunkFailed;
+            afterId = chunk.get(chunk.size() - 1).getId();
+            stats.record(chunk.size(), chunkFailed);
+
+            log.info("Partition {}: processed {} requests ({} failed), last id {}", range, processed, failed, afterId);
+        } while (chunk.size() == chunkSize);
+    }
+
+    /**
+     * Обрабатывает порцию в одной транзакции. Ошибки разбора и проверки документа
+     * отмечают только сам запрос. Любая другая ошибка (прежде всего ошибка базы данных,
+     * после которой транзакция непригодна) откатывает порцию, и она обрабатывается заново
+     * по одному запросу в транзакции, чтобы ошибка не откатила остальные.
+     * Запросы с ошибкой помечаются {@link ProcessingStatus#FAILED} и будут взяты следующим прогоном.
+     *
+     * @return количество запросов, обработанных с ошибкой
+     */
+    private int processChunk(List<RequestContent> chunk) {
+        try {
+            Integer failed = transactionTemplate.execute(status -> {
+                List<Long> failedIds = new ArrayList<>();
+                for (RequestContent request : chunk) {
+                    if (!tryProcess(request)) failedIds.add(request.getId());
+                }
+                if (!failedIds.isEmpty()) {
+                    requestContentRepository.markFailed(failedIds, OffsetDateTime.now());
+                }
+                entityManager.flush();
+                entityManager.clear();
+                return failedIds.size();
+            });
+            return failed == null ? 0 : failed;
+        } catch (RuntimeException e) {
+            log.warn("Chunk after id {} rolled back, processing requests one by one: {}",
+                    chunk.get(0).getId() - 1, e.getMessage());
+        }
+
+        List<Long> failedIds = new ArrayList<>();
+        for (RequestContent request : chunk) {
+            try {
+                Boolean success = transactionTemplate.execute(status -> {
+                    boolean result = tryProcess(request);
+                    if (!result) status.setRollbackOnly();
+                    return result;
+                });
+                if (!Boolean.TRUE.equals(success)) failedIds.add(request.getId());
+            } catch (RuntimeException e) {
+                log.error("Error processing request: {} - {}", request.getLoanRequestId(), e.getMessage(), e);
+                failedIds.add(request.getId());
+            }
+        }
+        if (!failedIds.isEmpty()) {
+            transactionTemplate.executeWithoutResult(status ->
+                    requestContentRepository.markFailed(failedIds, OffsetDateTime.now()));
+        }
+        return failedIds.size();
+    }
+
+    /**
+     * Обрабатывает запрос в текущей транзакции.
+     *
+     * @return false, если документ не разобран или не прошел проверку;
+     * остальные ошибки, в том числе ошибки базы данных, пробрасываются и откатывают транзакцию
+     */
+    private boolean tryProcess(RequestContent request) {
+        try {
+            processRequestContent(request.getContent());
+            return true;
+        } catch (IOException | BadRequestException e) {
+            log.error("Error processing request: {} - {}", request.getLoanRequestId(), e.getMessage(), e);
+            return false;
+        }
+    }
+
     @Transactional
     public void processRequest(String jsonContent) {
         try {
@@ -60,147 +340,156 @@ public class RequestProcessingService {
         }
     }
 
-    private void processRequestContent(String jsonContent) throws Exception {
-        JsonNode rootNode = objectMapper.readTree(jsonContent);
-        if (!rootNode.has("loanRequestID")) {
+    /**
+     * Обрабатывает один документ. Длительность каждого этапа пишется
+     * в таймер {@code processing.stage} с тегом {@code stage}, а для медленных
+     * запросов - в событие JFR {@link RequestProcessedEvent}.
+     */
+    private void processRequestContent(String jsonContent) throws IOException {
+        RequestProcessedEvent event = new RequestProcessedEvent();
+        event.begin();
+        Stopwatch stopwatch = new Stopwatch();
+
+        RequestContentParser.ParsedRequest request = requestContentParser.parse(jsonContent);
+        event.setParse(stopwatch.lap(Stage.PARSE));
+        String loanRequestId = request.loanRequestId();
+        if (loanRequestId == null) {
             throw new BadRequestException("Missing required field: loanRequestID");
         }
+        event.setLoanRequestId(loanRequestId);
+        event.setAccountCount(request.accounts() == null ? 0 : request.accounts().size());
 
-        String loanRequestId = rootNode.get("loanRequestID").asText();
-        saveRequestContent(loanRequestId, objectMapper.writeValueAsString(rootNode));
+        // Исходный документ сохраняется как есть, без повторной сериализации
+        requestContentRepository.insertIfAbsent(loanRequestId, jsonContent, OffsetDateTime.now());
+        // Параллельная обработка той же заявки дождется конца этой транзакции
+        requestContentRepository.lockByLoanRequestId(loanRequestId);
+        event.setRequestContent(stopwatch.lap(Stage.REQUEST_CONTENT));
 
-        processRegPerson(loanRequestId, rootNode.path("regPerson"));
-        processVerifiedName(loanRequestId, getVerifiedNameNode(rootNode));
-        processAccountInfo(loanRequestId, rootNode.path("creditBureau").path("account_info"));
-    }
+        processRegPerson(loanRequestId, request.regPerson());
+        event.setRegPerson(stopwatch.lap(Stage.REG_PERSON));
+        processVerifiedName(loanRequestId, request.verifiedName());
+        event.setVerifiedName(stopwatch.lap(Stage.VERIFIED_NAME));
+        processAccountInfo(loanRequestId, request.accounts());
+        event.setAccountInfo(stopwatch.lap(Stage.ACCOUNT_INFO));
+        stopFactorResultService.record(loanRequestId, request.regPerson(), request.verifiedName());
+        event.setStopFactorResult(stopwatch.lap(Stage.STOP_FACTOR_RESULT));
 
-    private JsonNode getVerifiedNameNode(JsonNode rootNode) {
-        JsonNode verifiedNameNode = rootNode.path("verified_name");
-        if (verifiedNameNode.isMissingNode()) {
-            verifiedNameNode = rootNode.path("creditBureau").path("verified_name");
-        }
-        return verifiedNameNode;
+        requestContentRepository.markProcessed(loanRequestId, OffsetDateTime.now());
+        event.setMarkProcessed(stopwatch.lap(Stage.MARK_PROCESSED));
+        event.complete(jsonContent);
     }
 
-    private void saveRequestContent(String loanRequestId, String content) {
-        RequestContent existingContent = requestContentRepository
-                .findByLoanRequestId(loanRequestId);
-        if (existingContent == null) {
-            RequestContent requestContent = new RequestContent();
-            requestContent.setLoanRequestId(loanRequestId);
-            requestContent.setContent(content);
-            requestContent.setCreatedAt(OffsetDateTime.now());
-            requestContentRepository.save(requestContent);
+    /**
+     * Отсчитывает этапы обработки одного документа и пишет их длительность в таймеры.
+     */
+    private final class Stopwatch {
+        private long last = System.nanoTime();
+
+        /**
+         * @return длительность этапа с конца предыдущего в наносекундах
+         */
+        long lap(Stage stage) {
+            long now = System.nanoTime();
+            long elapsed = now - last;
+            last = now;
+            stageTimers.get(stage).record(elapsed, TimeUnit.NANOSECONDS);
+            return elapsed;
         }
     }
 
-    private void processRegPerson(String loanRequestId, JsonNode regPersonNode) {
-        if (!regPersonNode.isMissingNode() &&
-                regPersonRepository.findByLoanRequestId(loanRequestId) == null) {
-            RegPerson regPerson = new RegPerson();
-            regPerson.setLoanRequestId(loanRequestId);
-            regPerson.setFirstName(getTextValue(regPersonNode, "firstName"));
-            regPerson.setMiddleName(getTextValue(regPersonNode, "middleName"));
-            regPerson.setLastName(getTextValue(regPersonNode, "lastName"));
-            regPersonRepository.save(regPerson);
-        }
+    private void processRegPerson(String loanRequestId, RegPerson regPerson) {
+        if (regPerson == null) return;
+        regPersonRepository.insertIfAbsent(loanRequestId,
+                regPerson.getFirstName(), regPerson.getMiddleName(), regPerson.getLastName());
     }
 
-    private void processVerifiedName(String loanRequestId, JsonNode verifiedNameNode) {
-        if (!verifiedNameNode.isMissingNode() &&
-                verifiedNameRepository.findByLoanRequestId(loanRequestId) == null) {
-            VerifiedName verifiedName = new VerifiedName();
-            verifiedName.setLoanRequestId(loanRequestId);
-            verifiedName.setFirstName(getTextValue(verifiedNameNode, "first_name"));
-            verifiedName.setOtherName(getTextValue(verifiedNameNode, "other_name"));
-            verifiedName.setSurname(getTextValue(verifiedNameNode, "surname"));
-            verifiedNameRepository.save(verifiedName);
+    private void processVerifiedName(String loanRequestId, VerifiedName verifiedName) {
+        if (verifiedName == null) return;
+        int inserted = verifiedNameRepository.insertIfAbsent(loanRequestId,
+                verifiedName.getFirstName(), verifiedName.getOtherName(), verifiedName.getSurname());
+        if (inserted > 0) {
+            eventPublisher.publishEvent(new VerifiedNameSavedEvent(verifiedName));
         }
     }
 
-    private void processAccountInfo(String loanRequestId, JsonNode accountInfoArray) {
-        if (!accountInfoArray.isArray()) return;
+    private void processAccountInfo(String loanRequestId, List<AccountInfo> accounts) {
+        if (accounts == null) return;
 
-        List<AccountInfo> existingAccounts = accountInfoRepository.findAllByLoanRequestId(loanRequestId);
-        if (!existingAccounts.isEmpty()) return;
+        // Счета не имеют естественного ключа; повторная вставка исключена блокировкой заявки
+        if (accountInfoRepository.existsByLoanRequestId(loanRequestId)) return;
 
         try {
-            for (JsonNode accountNode : accountInfoArray) {
-                AccountInfo accountInfo = createAccountInfo(loanRequestId, accountNode);
-                accountInfoRepository.save(accountInfo);
-            }
+            // Вставки уходят в JDBC пакетами (hibernate.jdbc.batch_size)
+            accountInfoRepository.saveAll(accounts);
+        } catch (DataAccessException | PersistenceException e) {
+            throw e;
         } catch (Exception e) {
             throw new RuntimeException("Error processing account info: " + e.getMessage(), e);
         }
     }
 
-    private AccountInfo createAccountInfo(String loanRequestId, JsonNode accountNode) {
-        AccountInfo accountInfo = new AccountInfo();
-        accountInfo.setLoanRequestId(loanRequestId);
-        accountInfo.setAccountNumber(getTextValue(accountNode, "account_number"));
-        accountInfo.setAccountStatus(getTextValue(accountNode, "account_status"));
-        accountInfo.setCurrentBalance(parseBigDecimal(accountNode, "current_balance"));
-        accountInfo.setDateOpened(parseLocalDate(accountNode, "date_opened"));
-        accountInfo.setDaysInArrears(parseInteger(accountNode, "days_in_arrears"));
-        accountInfo.setDelinquencyCode(getTextValue(accountNode, "delinquency_code"));
-        accountInfo.setHighestDaysInArrears(parseInteger(accountNode, "highest_days_in_arrears"));
-        accountInfo.setIsYourAccount(parseBoolean(accountNode, "is_your_account"));
-        accountInfo.setLastPaymentAmount(parseBigDecimal(accountNode, "last_payment_amount"));
-        accountInfo.setLastPaymentDate(parseLocalDate(accountNode, "last_payment_date"));
-        accountInfo.setLoadedAt(parseLocalDate(accountNode, "loaded_at"));
-        accountInfo.setOriginalAmount(parseBigDecimal(accountNode, "original_amount"));
-        accountInfo.setOverdueBalance(parseBigDecimal(accountNode, "overdue_balance"));
-        accountInfo.setOverdueDate(parseLocalDate(accountNode, "overdue_date"));
-        accountInfo.setProductTypeId(parseInteger(accountNode, "product_type_id"));
-        return accountInfo;
-    }
-
-    private String getTextValue(JsonNode node, String fieldName) {
-        JsonNode field = node.get(fieldName);
-        return field != null && !field.isNull() ? field.asText() : null;
-    }
-
-    private BigDecimal parseBigDecimal(JsonNode node, String fieldName) {
-        JsonNode field = node.get(fieldName);
-        if (field != null && !field.isNull()) {
-            try {
-                return new BigDecimal(field.asText().replace("\"", ""));
-            } catch (NumberFormatException e) {
-                return null;
+    /**
+     * Диапазон id {@code (afterId, toId]}, обрабатываемый одним потоком.
+     */
+    record IdRange(long index, long afterId, long toId) {
+        static List<IdRange> split(long afterId, long toId, int parts) {
+            long span = toId - afterId;
+            int count = (int) Math.max(1, Math.min(parts, span));
+            long step = (span + count - 1) / count;
+
+            List<IdRange> ranges = new ArrayList<>(count);
+            for (int i = 0; i < count && afterId < toId; i++) {
+                long end = Math.min(toId, afterId + step);
+                ranges.add(new IdRange(i, afterId, end));
+                afterId = end;
             }
+            return ranges;
         }
-        return null;
-    }
 
-    private Integer parseInteger(JsonNode node, String fieldName) {
-        JsonNode field = node.get(fieldName);
-        if (field != null && !field.isNull()) {
-            try {
-                return field.asInt();
-            } catch (Exception e) {
-                return null;
-            }
+        @Override
+        public String toString() {
+            return index + " (" + afterId + ", " + toId + "]";
         }
-        return null;
     }
 
-    private Boolean parseBoolean(JsonNode node, String fieldName) {
-        JsonNode field = node.get(fieldName);
-        if (field != null && !field.isNull()) {
-            return field.asBoolean();
+    /**
+     * Счетчики одного прогона, общие для всех потоков.
+     */
+    private final class RunStats {
+        private final LongAdder processed = new LongAdder();
+        private final LongAdder failed = new LongAdder();
+        private final LongAdder failedPartitions = new LongAdder();
+        private final Counter processedCounter;
+        private final Counter failedCounter;
+        private final ProgressListener listener;
+
+        RunStats(String mode, ProgressListener listener) {
+            this.listener = listener;
+            this.processedCounter = meterRegistry.counter("processing.requests", "mode", mode, "outcome", "processed");
+            this.failedCounter = meterRegistry.counter("processing.requests", "mode", mode, "outcome", "failed");
         }
-        return null;
-    }
 
-    private LocalDate parseLocalDate(JsonNode node, String fieldName) {
-        JsonNode field = node.get(fieldName);
-        if (field != null && !field.isNull() && !field.asText().equals("null")) {
-            try {
-                return LocalDate.parse(field.asText());
-            } catch (DateTimeParseException e) {
-                return null;
-            }
+        void record(int chunkProcessed, int chunkFailed) {
+            processed.add(chunkProcessed);
+            failed.add(chunkFailed);
+            processedCounter.increment(chunkProcessed - chunkFailed);
+            failedCounter.increment(chunkFailed);
+            listener.chunkProcessed(chunkProcessed, chunkFailed);
         }
-        return null;
     }
-}
\ No newline at end of file
+
+    /**
+     * Слушатель прогресса повторной обработки.
+     */
+    @FunctionalInterface
+    public interface ProgressListener {
+        ProgressListener NONE = (processed, failed) -> {
+        };
+
+        /**
+         * @param processed количество запросов в зафиксированной порции, включая упавшие
+         * @param failed    количество запросов порции, обработанных с ошибкой
+         */
+        void chunkProcessed(int processed, int failed);
+    }
+}
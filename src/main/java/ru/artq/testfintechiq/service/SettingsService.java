@@ -1,11 +1,92 @@
 package ru.artq.testfintechiq.service;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import ru.artq.testfintechiq.model.Settings;
 import ru.artq.testfintechiq.repository.SettingsRepository;
 
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Настройки приложения из таблицы settings.
+ * Значения хранятся в памяти неизменяемым снимком {@link SettingsSnapshot}:
+ * расчет стоп-фактора читает снимок и не обращается к базе данных.
+ * Снимок загружается при первом обращении и перечитывается по расписанию
+ * ({@code settings.refresh-interval}) или через actuator-эндпоинт {@code settings}.
+ * Обращения к снимку считаются метрикой {@code settings.lookups},
+ * чтения из базы данных - таймером {@code settings.refresh}.
+ */
 @Service
-public record SettingsService(SettingsRepository settingsRepository) {
+@Slf4j
+public class SettingsService {
+    static final String DISTANCE_RATIO_THRESHOLD = "distanceRatioThreshold";
+
+    private final SettingsRepository settingsRepository;
+    private final AtomicReference<SettingsSnapshot> snapshot = new AtomicReference<>();
+    private final Counter lookups;
+    private final Timer refreshTimer;
+
+    public SettingsService(SettingsRepository settingsRepository, MeterRegistry meterRegistry) {
+        this.settingsRepository = settingsRepository;
+        this.lookups = meterRegistry.counter("settings.lookups");
+        this.refreshTimer = meterRegistry.timer("settings.refresh");
+    }
+
     public double getDistanceRatioThreshold() {
-        return Double.parseDouble(settingsRepository.findByName("distanceRatioThreshold").getValue());
+        return getSnapshot().distanceRatioThreshold();
+    }
+
+    /**
+     * @return текущий снимок настроек, при первом обращении загружается из базы данных
+     */
+    public SettingsSnapshot getSnapshot() {
+        lookups.increment();
+        SettingsSnapshot current = snapshot.get();
+        return current != null ? current : refresh();
+    }
+
+    /**
+     * Перечитывает настройки из базы данных. Версия увеличивается,
+     * только если значения изменились.
+     *
+     * @return новый снимок настроек
+     */
+    public synchronized SettingsSnapshot refresh() {
+        double threshold = refreshTimer.record(
+                () -> parseDouble(settingsRepository.findByName(DISTANCE_RATIO_THRESHOLD)));
+
+        SettingsSnapshot current = snapshot.get();
+        long version = current == null ? 1
+                : current.distanceRatioThreshold() == threshold ? current.version() : current.version() + 1;
+        SettingsSnapshot loaded = new SettingsSnapshot(threshold, version, Instant.now());
+        snapshot.set(loaded);
+
+        if (current == null || current.version() != version) {
+            log.info("Settings loaded: distanceRatioThreshold = {}, version = {}", threshold, version);
+        }
+        return loaded;
+    }
+
+    @Scheduled(fixedDelayString = "${settings.refresh-interval:PT1M}",
+            initialDelayString = "${settings.refresh-interval:PT1M}")
+    void scheduledRefresh() {
+        try {
+            refresh();
+        } catch (Exception e) {
+            // Старый снимок остается в силе до следующей успешной загрузки
+            log.warn("Failed to refresh settings: {}", e.getMessage());
+        }
+    }
+
+    private static double parseDouble(Settings settings) {
+        if (settings == null) {
+            throw new IllegalStateException("Missing required setting: " + DISTANCE_RATIO_THRESHOLD);
+        }
+        return Double.parseDouble(settings.getValue());
     }
-}
\ No newline at end of file
+}
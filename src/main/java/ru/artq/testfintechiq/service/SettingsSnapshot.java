@@ -0,0 +1,13 @@
+package ru.artq.testfintechiq.service;
+
+import java.time.Instant;
+
+/**
+ * Неизменяемый снимок настроек приложения.
+ *
+ * @param distanceRatioThreshold порог коэффициента сходства для стоп-фактора
+ * @param version                номер версии, растет при каждом изменении значений
+ * @param loadedAt               время последней загрузки из базы данных
+ */
+public record SettingsSnapshot(double distanceRatioThreshold, long version, Instant loadedAt) {
+}
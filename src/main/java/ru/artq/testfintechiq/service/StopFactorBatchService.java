@@ -0,0 +1,170 @@
+package ru.artq.testfintechiq.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import ru.artq.testfintechiq.config.StopFactorProperties;
+import ru.artq.testfintechiq.dto.StopFactorRequest;
+import ru.artq.testfintechiq.dto.StopFactorResponse;
+import ru.artq.testfintechiq.exception.BadRequestException;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Пакетный расчет стоп-фактора.
+ * Пары считаются параллельно на ограниченном пуле, а результаты пишутся
+ * в ответ по мере готовности в порядке входных данных. В работе одновременно
+ * находится не больше окна задач, поэтому готовые результаты не копятся в памяти;
+ * сам входной пакет читается целиком, его размер ограничен {@code stop-factor.batch.max-size}.
+ * Пул принадлежит сервису и не публикуется бином: бин типа {@code Executor}
+ * отключил бы {@code applicationTaskExecutor}, на котором Spring MVC
+ * выполняет асинхронные ответы.
+ */
+@Service
+@Slf4j
+public class StopFactorBatchService {
+    private final LevenshteinService levenshteinService;
+    private final ExecutorService executor;
+    private final ObjectMapper objectMapper;
+    private final int maxBatchSize;
+    private final int windowSize;
+    private final long taskTimeoutNanos;
+
+    public StopFactorBatchService(LevenshteinService levenshteinService,
+                                  ObjectMapper objectMapper,
+                                  StopFactorProperties properties) {
+        this.levenshteinService = levenshteinService;
+        this.executor = createExecutor(properties.batch());
+        this.objectMapper = objectMapper;
+        this.maxBatchSize = properties.batch().maxSize();
+        this.windowSize = properties.batch().effectiveParallelism() * 2;
+        this.taskTimeoutNanos = properties.batch().taskTimeout().toNanos();
+    }
+
+    /**
+     * Пул расчета: по потоку на ядро и ограниченная очередь.
+     * При переполнении задача выполняется в вызывающем потоке, что замедляет
+     * чтение новых задач вместо неограниченного роста очереди. После остановки пула
+     * задача отклоняется исключением: {@code CallerRunsPolicy} молча выбросила бы ее,
+     * и ее результат ждали бы вечно.
+     */
+    private static ExecutorService createExecutor(StopFactorProperties.Batch batch) {
+        int threads = batch.effectiveParallelism();
+        return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(batch.queueCapacity()),
+                new CustomizableThreadFactory("stop-factor-"),
+                (task, pool) -> {
+                    if (pool.isShutdown()) {
+                        throw new RejectedExecutionException("Stop factor pool is shut down");
+                    }
+                    task.run();
+                });
+    }
+
+    /**
+     * Останавливает пул. Задачи из очереди отменяются, чтобы пакеты, которые
+     * их ждут, сразу завершились элементом с ошибкой.
+     */
+    @PreDestroy
+    public void shutdown() {
+        for (Runnable task : executor.shutdownNow()) {
+            if (task instanceof Future<?> future) future.cancel(true);
+        }
+    }
+
+    /**
+     * Проверяет размер пакета до начала расчета.
+     *
+     * @param requests пары имен
+     * @throws BadRequestException если пакет пуст или больше допустимого
+     */
+    public void validateBatch(List<StopFactorRequest> requests) {
+        if (requests == null || requests.isEmpty()) {
+            throw new BadRequestException("Batch must contain at least one request");
+        }
+        if (requests.size() > maxBatchSize) {
+            throw new BadRequestException("Batch size %d exceeds maximum of %d"
+                    .formatted(requests.size(), maxBatchSize));
+        }
+    }
+
+    /**
+     * Рассчитывает стоп-фактор для каждой пары и пишет JSON-массив
+     * {@link StopFactorResponse} в порядке входных пар.
+     * Ответ к этому моменту уже отправлен со статусом 200, поэтому ошибка расчета
+     * (в том числе остановка пула или результат, не готовый за {@code stop-factor.batch.task-timeout})
+     * не обрывает массив: последним элементом пишется {@link StopFactorResponse} с заполненным
+     * {@code error}, и массив закрывается, оставаясь корректным JSON.
+     *
+     * @param requests пары имен
+     * @param out      поток ответа
+     */
+    public void calculateStopFactors(List<StopFactorRequest> requests, OutputStream out) throws IOException {
+        Deque<Future<Boolean>> window = new ArrayDeque<>(windowSize);
+        Iterator<StopFactorRequest> iterator = requests.iterator();
+
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            generator.writeStartArray();
+            try {
+                while (iterator.hasNext() || !window.isEmpty()) {
+                    while (iterator.hasNext() && window.size() < windowSize) {
+                        StopFactorRequest request = iterator.next();
+                        window.addLast(executor.submit(() -> calculateStopFactor(request)));
+                    }
+                    generator.writeObject(new StopFactorResponse(await(window.pollFirst(), taskTimeoutNanos)));
+                    // Результаты, которые уже готовы, отдаются клиенту сразу
+                    if (window.isEmpty() || !window.peekFirst().isDone()) generator.flush();
+                }
+            } catch (RuntimeException e) {
+                log.error("Batch stop factor calculation failed", e);
+                generator.writeObject(StopFactorResponse.failed(e.getMessage()));
+            }
+            generator.writeEndArray();
+        } finally {
+            // Клиент отключился или расчет упал: незапущенные задачи больше не нужны
+            window.forEach(future -> future.cancel(true));
+        }
+    }
+
+    private boolean calculateStopFactor(StopFactorRequest request) {
+        if (request == null) return false;
+        return levenshteinService.calculateStopFactor(
+                request.getRegPersonString(),
+                request.getVerifiedNameString()
+        );
+    }
+
+    private static boolean await(Future<Boolean> future, long timeoutNanos) {
+        try {
+            return future.get(timeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            throw new IllegalStateException("Batch stop factor calculation timed out after %d ms"
+                    .formatted(TimeUnit.NANOSECONDS.toMillis(timeoutNanos)), e);
+        } catch (CancellationException e) {
+            throw new IllegalStateException("Batch stop factor calculation cancelled", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Batch stop factor calculation interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Batch stop factor calculation failed: "
+                    + e.getCause().getMessage(), e.getCause());
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package ru.artq.testfintechiq.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.stereotype.Component;
+import ru.artq.testfintechiq.config.StopFactorProperties;
+import ru.artq.testfintechiq.matching.NameFingerprint;
+
+import java.util.function.BooleanSupplier;
+
+/**
+ * Кэш результатов стоп-фактора, ограниченный по размеру и времени жизни.
+ * Стоп-фактор симметричен, поэтому ключ - неупорядоченная пара нормализованных
+ * имен вместе с версией настроек: после смены порога старые записи просто
+ * не находятся и вытесняются по размеру или времени.
+ * Статистика попаданий, промахов и вытеснений публикуется в метрики
+ * {@code cache.*} с тегом {@code cache=stopFactor}.
+ */
+@Component
+public class StopFactorCache {
+    private static final String CACHE_NAME = "stopFactor";
+
+    private final Cache<Key, Boolean> cache;
+
+    public StopFactorCache(StopFactorProperties properties, MeterRegistry meterRegistry) {
+        StopFactorProperties.Cache settings = properties.cache();
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(settings.maximumSize())
+                .expireAfterWrite(settings.expireAfterWrite())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+    }
+
+    /**
+     * Возвращает сохраненный результат для пары имен и версии настроек или рассчитывает
+     * и сохраняет его. Одновременные запросы одной пары считают ее один раз.
+     *
+     * @param first           первое имя
+     * @param second          второе имя
+     * @param settingsVersion версия настроек, с которыми считается результат
+     * @param calculate       расчет стоп-фактора при промахе
+     */
+    public boolean get(NameFingerprint first, NameFingerprint second, long settingsVersion, BooleanSupplier calculate) {
+        return cache.get(Key.of(first, second, settingsVersion), key -> calculate.getAsBoolean());
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    public long size() {
+        return cache.estimatedSize();
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    private record Key(String first, String second, long settingsVersion) {
+        static Key of(NameFingerprint a, NameFingerprint b, long settingsVersion) {
+            String s1 = a.normalized();
+            String s2 = b.normalized();
+            return s1.compareTo(s2) <= 0 ? new Key(s1, s2, settingsVersion) : new Key(s2, s1, settingsVersion);
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package ru.artq.testfintechiq.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.artq.testfintechiq.config.StopFactorProperties;
+import ru.artq.testfintechiq.dto.LoanNames;
+import ru.artq.testfintechiq.exception.BadRequestException;
+import ru.artq.testfintechiq.matching.CombinationScorer;
+import ru.artq.testfintechiq.repository.RegPersonRepository;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Пересчет сохраненных результатов стоп-фактора по всем заявкам.
+ * Имена читаются порциями одним запросом с соединением reg_person и verified_name
+ * (без отдельных запросов на каждую заявку), порция считается параллельно
+ * на ForkJoin-пуле, а результаты записываются JDBC-пакетами.
+ */
+@Service
+@Slf4j
+public class StopFactorRecomputeService {
+    private static final String UPDATE_SQL = """
+            UPDATE stop_factor_result
+            SET best_ratio = ?, reg_person_combination = ?, verified_name_combination = ?,
+                threshold = ?, stop_factor = ?, computed_at = ?
+            WHERE loan_request_id = ?""";
+    private static final String INSERT_SQL = """
+            INSERT INTO stop_factor_result (best_ratio, reg_person_combination, verified_name_combination,
+                                            threshold, stop_factor, computed_at, loan_request_id)
+            VALUES (?, ?, ?, ?, ?, ?, ?)
+            ON CONFLICT DO NOTHING""";
+
+    private final RegPersonRepository regPersonRepository;
+    private final LevenshteinService levenshteinService;
+    private final SettingsService settingsService;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final int parallelism;
+    private final ExecutorService runner = Executors.newSingleThreadExecutor(
+            new CustomizableThreadFactory("stop-factor-recompute-"));
+    private final AtomicBoolean running = new AtomicBoolean();
+    private volatile Progress progress = new Progress(State.IDLE, 0, 0, null, null, null);
+
+    public StopFactorRecomputeService(RegPersonRepository regPersonRepository,
+                                      LevenshteinService levenshteinService,
+                                      SettingsService settingsService,
+                                      JdbcTemplate jdbcTemplate,
+                                      TransactionTemplate transactionTemplate,
+                                      StopFactorProperties properties) {
+        this.regPersonRepository = regPersonRepository;
+        this.levenshteinService = levenshteinService;
+        this.settingsService = settingsService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.batchSize = properties.recompute().batchSize();
+        this.parallelism = properties.recompute().effectiveParallelism();
+    }
+
+    public enum State {
+        IDLE, RUNNING, COMPLETED, FAILED
+    }
+
+    /**
+     * @param scored      количество пересчитанных заявок
+     * @param stopFactors количество заявок со стоп-фактором при текущем пороге
+     */
+    public record Progress(State state, long scored, long stopFactors,
+                           Instant startedAt, Instant finishedAt, String error) {
+    }
+
+    private record ScoredLoan(String loanRequestId, CombinationScorer.Match match, boolean stopFactor) {
+    }
+
+    /**
+     * Запускает пересчет в фоновом потоке.
+     *
+     * @return прогресс на момент запуска
+     * @throws BadRequestException если пересчет уже выполняется
+     */
+    public Progress start() {
+        if (!running.compareAndSet(false, true)) {
+            throw new BadRequestException("Stop factor recompute is already running");
+        }
+        progress = new Progress(State.RUNNING, 0, 0, Instant.now(), null, null);
+        Progress started = progress;
+        runner.submit(() -> {
+            try {
+                recompute();
+            } finally {
+                running.set(false);
+            }
+        });
+        return started;
+    }
+
+    public Progress getProgress() {
+        return progress;
+    }
+
+    /**
+     * Пересчитывает результаты всех заявок в текущем потоке.
+     */
+    public void recompute() {
+        Instant startedAt = Instant.now();
+        progress = new Progress(State.RUNNING, 0, 0, startedAt, null, null);
+        double threshold = Math.min(settingsService.getSnapshot().distanceRatioThreshold(), 1.0);
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        long scored = 0;
+        long stopFactors = 0;
+        try {
+            long afterId = 0;
+            List<LoanNames> page;
+            do {
+                page = regPersonRepository.findLoanNames(afterId, Limit.of(batchSize));
+                if (page.isEmpty()) break;
+
+                List<LoanNames> loans = page;
+                List<ScoredLoan> results = pool.submit(() -> loans.parallelStream()
+                        .map(loan -> score(loan, threshold))
+                        .toList()).get();
+                write(results, threshold);
+
+                scored += results.size();
+                stopFactors += results.stream().filter(ScoredLoan::stopFactor).count();
+                afterId = page.get(page.size() - 1).regPersonId();
+                progress = new Progress(State.RUNNING, scored, stopFactors, startedAt, null, null);
+                log.info("Stop factor recompute: {} loans scored, {} with stop factor", scored, stopFactors);
+            } while (page.size() == batchSize);
+
+            progress = new Progress(State.COMPLETED, scored, stopFactors, startedAt, Instant.now(), null);
+            log.info("Stop factor recompute completed: {} loans in {} ms", scored,
+                    Instant.now().toEpochMilli() - startedAt.toEpochMilli());
+        } catch (Exception e) {
+            if (e instanceof InterruptedException) Thread.currentThread().interrupt();
+            Throwable cause = e instanceof ExecutionException && e.getCause() != null ? e.getCause() : e;
+            progress = new Progress(State.FAILED, scored, stopFactors, startedAt, Instant.now(), cause.getMessage());
+            log.error("Stop factor recompute failed: {}", cause.getMessage(), cause);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private ScoredLoan score(LoanNames loan, double threshold) {
+        CombinationScorer.Match match = levenshteinService
+                .calculateBestMatch(loan.regPersonFingerprint(), loan.verifiedNameFingerprint());
+        return new ScoredLoan(loan.loanRequestId(), match, match.ratio() >= threshold);
+    }
+
+    /**
+     * Обновляет существующие результаты одним пакетом, а для заявок без результата
+     * вставляет строки вторым пакетом.
+     */
+    private void write(List<ScoredLoan> results, double threshold) {
+        OffsetDateTime computedAt = OffsetDateTime.now();
+        ParameterizedPreparedStatementSetter<ScoredLoan> setter = (ps, result) -> {
+            ps.setDouble(1, result.match().ratio());
+            ps.setString(2, result.match().regPersonCombination());
+            ps.setString(3, result.match().verifiedNameCombination());
+            ps.setDouble(4, threshold);
+            ps.setBoolean(5, result.stopFactor());
+            ps.setObject(6, computedAt);
+            ps.setString(7, result.loanRequestId());
+        };
+
+        transactionTemplate.executeWithoutResult(status -> {
+            int[][] updated = jdbcTemplate.batchUpdate(UPDATE_SQL, results, results.size(), setter);
+            List<ScoredLoan> missing = new ArrayList<>();
+            for (int i = 0; i < results.size(); i++) {
+                // Драйвер может вернуть SUCCESS_NO_INFO; вставка с ON CONFLICT безопасна и в этом случае
+                if (updated[0][i] != 1) missing.add(results.get(i));
+            }
+            if (!missing.isEmpty()) {
+                jdbcTemplate.batchUpdate(INSERT_SQL, missing, missing.size(), setter);
+            }
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        runner.shutdownNow();
+    }
+}
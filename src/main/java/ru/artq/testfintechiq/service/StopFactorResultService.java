@@ -0,0 +1,136 @@
+package ru.artq.testfintechiq.service;
+
+import jakarta.persistence.EntityNotFoundException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import ru.artq.testfintechiq.config.StopFactorProperties;
+import ru.artq.testfintechiq.dto.StopFactorExplanation;
+import ru.artq.testfintechiq.dto.StopFactorResultResponse;
+import ru.artq.testfintechiq.exception.BadRequestException;
+import ru.artq.testfintechiq.matching.CombinationScorer;
+import ru.artq.testfintechiq.model.RegPerson;
+import ru.artq.testfintechiq.model.StopFactorResult;
+import ru.artq.testfintechiq.model.VerifiedName;
+import ru.artq.testfintechiq.repository.RegPersonRepository;
+import ru.artq.testfintechiq.repository.StopFactorResultRepository;
+import ru.artq.testfintechiq.repository.VerifiedNameRepository;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Сохраненные результаты стоп-фактора.
+ * При приеме заявки рассчитывается максимальный коэффициент сходства по всем парам
+ * комбинаций, поэтому стоп-фактор для любого порога определяется сравнением
+ * с сохраненным значением без повторного расчета расстояний.
+ * Для доли заявок {@code stop-factor.trace.sample-rate} разбор расчета
+ * пишется в лог {@code ru.artq.testfintechiq.trace.stop-factor}.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class StopFactorResultService {
+    private static final Logger TRACE = LoggerFactory.getLogger("ru.artq.testfintechiq.trace.stop-factor");
+    private static final int TRACE_PAIRS = 3;
+
+    private final StopFactorResultRepository stopFactorResultRepository;
+    private final LevenshteinService levenshteinService;
+    private final SettingsService settingsService;
+    private final RegPersonRepository regPersonRepository;
+    private final VerifiedNameRepository verifiedNameRepository;
+    private final StopFactorProperties stopFactorProperties;
+
+    /**
+     * Рассчитывает и сохраняет результат по заявке, если его еще нет.
+     * Вызывается в транзакции приема заявки.
+     */
+    public void record(String loanRequestId, RegPerson regPerson, VerifiedName verifiedName) {
+        if (regPerson == null || verifiedName == null) return;
+
+        CombinationScorer.Match match = levenshteinService
+                .calculateBestMatch(regPerson.getFingerprint(), verifiedName.getFingerprint());
+        double threshold = currentThreshold();
+        stopFactorResultRepository.insertIfAbsent(loanRequestId, match.ratio(),
+                match.regPersonCombination(), match.verifiedNameCombination(),
+                threshold, match.ratio() >= threshold, OffsetDateTime.now());
+
+        double sampleRate = stopFactorProperties.trace().sampleRate();
+        if (sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate && TRACE.isInfoEnabled()) {
+            trace(loanRequestId, levenshteinService.explain(regPerson.getFingerprint(), verifiedName.getFingerprint()));
+        }
+    }
+
+    /**
+     * Разбирает расчет стоп-фактора по сохраненным именам заявки для текущего порога.
+     *
+     * @throws EntityNotFoundException если у заявки нет регистрационного лица или проверенного имени
+     */
+    public StopFactorExplanation explain(String loanRequestId) {
+        RegPerson regPerson = regPersonRepository.findByLoanRequestId(loanRequestId);
+        VerifiedName verifiedName = verifiedNameRepository.findByLoanRequestId(loanRequestId);
+        if (regPerson == null || verifiedName == null) {
+            throw new EntityNotFoundException("Names not found for loanRequestId: " + loanRequestId);
+        }
+        return levenshteinService.explain(regPerson.getFingerprint(), verifiedName.getFingerprint());
+    }
+
+    private static void trace(String loanRequestId, StopFactorExplanation explanation) {
+        TRACE.info("loanRequestId={} stopFactor={} reason={} bestRatio={} threshold={} regPerson=\"{}\" "
+                        + "verifiedName=\"{}\" pairs={} top={}",
+                loanRequestId, explanation.stopFactor(), explanation.reason(), explanation.bestRatio(),
+                explanation.threshold(), explanation.regPerson(), explanation.verifiedName(),
+                explanation.pairs().size(),
+                explanation.pairs().stream().limit(TRACE_PAIRS)
+                        .map(p -> p.regPersonCombination() + "/" + p.verifiedNameCombination() + "=" + p.ratio())
+                        .toList());
+    }
+
+    /**
+     * Возвращает результат по заявке; стоп-фактор пересчитывается для текущего порога.
+     *
+     * @throws EntityNotFoundException если результата по заявке нет
+     */
+    public StopFactorResultResponse get(String loanRequestId) {
+        StopFactorResult result = stopFactorResultRepository.findByLoanRequestId(loanRequestId)
+                .orElseThrow(() -> new EntityNotFoundException(
+                        "Stop factor result not found for loanRequestId: " + loanRequestId));
+        return toResponse(result, currentThreshold());
+    }
+
+    /**
+     * Заявки, у которых стоп-фактор срабатывает при заданном пороге, по убыванию коэффициента.
+     *
+     * @param threshold порог или null для текущего из настроек
+     * @param limit     максимальное количество результатов
+     */
+    public List<StopFactorResultResponse> findStopFactors(Double threshold, int limit) {
+        if (limit <= 0) throw new BadRequestException("Limit must be positive");
+        double target = threshold == null ? currentThreshold() : Math.min(threshold, 1.0);
+        return stopFactorResultRepository
+                .findByBestRatioGreaterThanEqualOrderByBestRatioDescIdAsc(target, Limit.of(limit)).stream()
+                .map(result -> toResponse(result, target))
+                .toList();
+    }
+
+    /**
+     * @return количество заявок со стоп-фактором при текущем пороге
+     */
+    public long countStopFactors() {
+        return stopFactorResultRepository.countByBestRatioGreaterThanEqual(currentThreshold());
+    }
+
+    private double currentThreshold() {
+        return Math.min(settingsService.getSnapshot().distanceRatioThreshold(), 1.0);
+    }
+
+    private static StopFactorResultResponse toResponse(StopFactorResult result, double threshold) {
+        return new StopFactorResultResponse(result.getLoanRequestId(), result.getBestRatio(),
+                result.getRegPersonCombination(), result.getVerifiedNameCombination(),
+                threshold, result.getBestRatio() >= threshold, result.getComputedAt());
+    }
+}
@@ -0,0 +1,9 @@
+package ru.artq.testfintechiq.service;
+
+import ru.artq.testfintechiq.model.VerifiedName;
+
+/**
+ * Публикуется после сохранения нового проверенного имени.
+ */
+public record VerifiedNameSavedEvent(VerifiedName verifiedName) {
+}
@@ -0,0 +1,158 @@
+package ru.artq.testfintechiq.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import ru.artq.testfintechiq.dto.WatchlistMatch;
+import ru.artq.testfintechiq.exception.BadRequestException;
+import ru.artq.testfintechiq.matching.BkTree;
+import ru.artq.testfintechiq.matching.NameFingerprint;
+import ru.artq.testfintechiq.model.VerifiedName;
+import ru.artq.testfintechiq.repository.VerifiedNameRepository;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Поиск похожих имен среди всех сохраненных проверенных имен (VerifiedName).
+ * Комбинации слов каждого имени хранятся в BK-дереве, поэтому поиск не сравнивает
+ * запрос с каждой строкой базы. Имена из тех же слов в другом порядке
+ * находятся отдельно по отсортированному набору слов, как и в стоп-факторе.
+ * Индекс строится при старте и дополняется после фиксации транзакций,
+ * сохранивших новые имена.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class WatchlistService {
+    private final VerifiedNameRepository verifiedNameRepository;
+    private final SettingsService settingsService;
+    private final StringConcatenationService stringConcatenationService;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final BkTree<Entry> combinationIndex = new BkTree<>();
+    private final Map<String, List<Entry>> sortedWordsIndex = new HashMap<>();
+    private final Set<String> indexedLoanRequestIds = new HashSet<>();
+
+    /**
+     * Строит индекс по всем проверенным именам из базы данных.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadIndex() {
+        List<VerifiedName> verifiedNames = verifiedNameRepository.findAll();
+        verifiedNames.forEach(this::add);
+        log.info("Watchlist index loaded: {} names", size());
+    }
+
+    /**
+     * Добавляет в индекс имя, сохраненное при обработке запроса.
+     * Вызывается после фиксации транзакции, чтобы в индекс не попали откаченные строки.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onVerifiedNameSaved(VerifiedNameSavedEvent event) {
+        add(event.verifiedName());
+    }
+
+    /**
+     * Добавляет проверенное имя в индекс. Повторное добавление того же loanRequestId игнорируется.
+     */
+    public void add(VerifiedName verifiedName) {
+        NameFingerprint fingerprint = verifiedName.getFingerprint();
+        if (fingerprint.isEmpty()) return;
+
+        Entry entry = new Entry(verifiedName.getLoanRequestId(),
+                stringConcatenationService.concatenateVerifiedNameFields(verifiedName));
+        lock.writeLock().lock();
+        try {
+            if (!indexedLoanRequestIds.add(entry.loanRequestId())) return;
+            for (String combination : fingerprint.combinations()) {
+                combinationIndex.add(combination, entry);
+            }
+            sortedWordsIndex.computeIfAbsent(fingerprint.sortedWords(), key -> new ArrayList<>(1)).add(entry);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Ищет проверенные имена, сходство которых с запросом не ниже порога distanceRatioThreshold.
+     * Сходство имени - максимальный коэффициент по парам комбинаций слов,
+     * имена из тех же слов в любом порядке имеют сходство 1.
+     *
+     * @param name  имя для проверки, слова разделены пробелами
+     * @param limit максимальное количество результатов
+     * @return найденные имена по убыванию сходства
+     */
+    public List<WatchlistMatch> search(String name, int limit) {
+        if (limit <= 0) throw new BadRequestException("Limit must be positive: " + limit);
+
+        NameFingerprint query = NameFingerprint.of(name);
+        if (query == null || query.isEmpty()) throw new BadRequestException("Name must not be empty");
+
+        double threshold = Math.min(settingsService.getSnapshot().distanceRatioThreshold(), 1.0);
+        Map<Entry, Double> ratios = new LinkedHashMap<>();
+
+        lock.readLock().lock();
+        try {
+            for (Entry entry : sortedWordsIndex.getOrDefault(query.sortedWords(), List.of())) {
+                ratios.put(entry, 1.0);
+            }
+            for (String combination : query.combinations()) {
+                int length = combination.length();
+                combinationIndex.search(combination, searchRadius(threshold, length), (key, distance, entries) -> {
+                    double ratio = 1.0 - ((double) distance / Math.max(length, key.length()));
+                    if (ratio < threshold) return;
+                    for (Entry entry : entries) {
+                        ratios.merge(entry, ratio, Math::max);
+                    }
+                });
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        return ratios.entrySet().stream()
+                .sorted(Map.Entry.<Entry, Double>comparingByValue().reversed()
+                        .thenComparing(e -> e.getKey().loanRequestId()))
+                .limit(limit)
+                .map(e -> new WatchlistMatch(e.getKey().loanRequestId(), e.getKey().name(), e.getValue()))
+                .toList();
+    }
+
+    /**
+     * @return количество проиндексированных имен
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return indexedLoanRequestIds.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Радиус поиска в дереве для комбинации запроса длины {@code length}.
+     * Расстояние не меньше разницы длин, поэтому у строки с коэффициентом не ниже порога
+     * {@code d <= (1 - t) * (length + d)}, то есть {@code d <= (1 - t) * length / t}.
+     * Радиус берется с запасом вверх, точное сравнение с порогом выполняется по найденным строкам.
+     */
+    private static int searchRadius(double threshold, int length) {
+        if (threshold <= 0.0) return Integer.MAX_VALUE / 2;
+        return (int) Math.ceil((1.0 - threshold) * length / threshold);
+    }
+
+    private record Entry(String loanRequestId, String name) {
+    }
+}
@@ -0,0 +1,39 @@
+--liquibase formatted sql
+
+--changeset artq:4
+--comment: Дубликаты reg_person и verified_name переносятся в *_duplicate перед созданием уникальных индексов
+-- Дубликаты могли появиться при параллельной обработке одной заявки (проверка и вставка
+-- не были атомарными); остается самая ранняя строка. Остальные не удаляются бесследно:
+-- они переносятся в reg_person_duplicate / verified_name_duplicate вместе с id оставленной
+-- строки (kept_id) и временем переноса, чтобы их можно было проверить и при необходимости вернуть
+CREATE TABLE IF NOT EXISTS reg_person_duplicate AS
+SELECT a.*, k.kept_id, now() AS archived_at
+FROM reg_person a
+         JOIN (SELECT loan_request_id, MIN(id) AS kept_id
+               FROM reg_person
+               GROUP BY loan_request_id
+               HAVING COUNT(*) > 1) k ON k.loan_request_id = a.loan_request_id
+WHERE a.id > k.kept_id;
+
+DELETE FROM reg_person WHERE id IN (SELECT id FROM reg_person_duplicate);
+
+CREATE TABLE IF NOT EXISTS verified_name_duplicate AS
+SELECT a.*, k.kept_id, now() AS archived_at
+FROM verified_name a
+         JOIN (SELECT loan_request_id, MIN(id) AS kept_id
+               FROM verified_name
+               GROUP BY loan_request_id
+               HAVING COUNT(*) > 1) k ON k.loan_request_id = a.loan_request_id
+WHERE a.id > k.kept_id;
+
+DELETE FROM verified_name WHERE id IN (SELECT id FROM verified_name_duplicate);
+
+-- Уникальность по заявке делает вставку идемпотентной (INSERT ... ON CONFLICT DO NOTHING)
+CREATE UNIQUE INDEX IF NOT EXISTS ux_reg_person_loan_request_id ON reg_person (loan_request_id);
+CREATE UNIQUE INDEX IF NOT EXISTS ux_verified_name_loan_request_id ON verified_name (loan_request_id);
+
+-- account_info не чистится: у счета нет естественного ключа, и одинаковые строки одной заявки
+-- нельзя отличить от двух счетов с совпадающими полями, поэтому удаление могло бы потерять данные.
+-- Повторная вставка счетов исключена блокировкой заявки при обработке; уже существующие повторы
+-- можно найти запросом по (loan_request_id, account_number) и разобрать вручную
+CREATE INDEX IF NOT EXISTS idx_account_info_loan_request_id ON account_info (loan_request_id);
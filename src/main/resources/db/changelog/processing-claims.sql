@@ -0,0 +1,22 @@
+--liquibase formatted sql
+
+--changeset artq:5
+-- Порции прогона повторной обработки, которые экземпляры приложения разбирают
+-- через SELECT ... FOR UPDATE SKIP LOCKED; истекшая аренда освобождает порцию упавшего узла
+CREATE TABLE IF NOT EXISTS processing_claim
+(
+    id           BIGSERIAL PRIMARY KEY,
+    run_id       VARCHAR(36)  NOT NULL,
+    from_id      BIGINT       NOT NULL,
+    to_id        BIGINT       NOT NULL,
+    owner        VARCHAR(255),
+    lease_until  TIMESTAMP WITH TIME ZONE,
+    completed_at TIMESTAMP WITH TIME ZONE
+);
+
+CREATE INDEX IF NOT EXISTS idx_processing_claim_pending ON processing_claim (run_id, id) WHERE completed_at IS NULL;
+
+--changeset artq:8
+-- Количество аренд порции: порция, обработка которой падает раз за разом,
+-- после processing.claim.max-attempts попыток не держит прогон незавершенным
+ALTER TABLE processing_claim ADD COLUMN IF NOT EXISTS attempts INT NOT NULL DEFAULT 0;
@@ -0,0 +1,12 @@
+--liquibase formatted sql
+
+--changeset artq:6
+-- Состояние обработки запроса: повторная обработка читает только новые и упавшие запросы.
+-- Существующие строки получают NEW и будут обработаны один раз следующим прогоном
+ALTER TABLE request_content
+    ADD COLUMN IF NOT EXISTS processing_status VARCHAR(16) NOT NULL DEFAULT 'NEW',
+    ADD COLUMN IF NOT EXISTS processed_at      TIMESTAMP WITH TIME ZONE;
+
+-- Частичный индекс содержит только необработанные запросы и не растет вместе с таблицей
+CREATE INDEX IF NOT EXISTS idx_request_content_pending ON request_content (id)
+    WHERE processing_status <> 'PROCESSED';
@@ -0,0 +1,8 @@
+--liquibase formatted sql
+
+--changeset artq:3
+-- Пулы идентификаторов для дочерних таблиц: Hibernate берет из последовательности
+-- блок из 50 id за один запрос, что позволяет пакетную вставку (IDENTITY ее отключает)
+ALTER SEQUENCE reg_person_id_seq INCREMENT BY 50;
+ALTER SEQUENCE verified_name_id_seq INCREMENT BY 50;
+ALTER SEQUENCE account_info_id_seq INCREMENT BY 50;
@@ -0,0 +1,19 @@
+--liquibase formatted sql
+
+--changeset artq:7
+-- Результаты стоп-фактора, рассчитанные при приеме заявки. Хранится максимальный коэффициент,
+-- поэтому смена порога - запрос по индексу best_ratio, а не повторный расчет
+CREATE TABLE IF NOT EXISTS stop_factor_result
+(
+    id                        BIGSERIAL PRIMARY KEY,
+    loan_request_id           VARCHAR(255)     NOT NULL UNIQUE,
+    best_ratio                DOUBLE PRECISION NOT NULL,
+    reg_person_combination    VARCHAR(255),
+    verified_name_combination VARCHAR(255),
+    threshold                 DOUBLE PRECISION NOT NULL,
+    stop_factor               BOOLEAN          NOT NULL,
+    computed_at               TIMESTAMP WITH TIME ZONE,
+    CONSTRAINT fk_stop_factor_result_request_content FOREIGN KEY (loan_request_id) REFERENCES request_content (loan_request_id)
+);
+
+CREATE INDEX IF NOT EXISTS idx_stop_factor_result_best_ratio ON stop_factor_result (best_ratio);
@@ -0,0 +1,57 @@
+package ru.artq.testfintechiq.config;
+
+import java.time.Duration;
+
+/**
+ * Настройки стоп-фактора для тестов и бенчмарков: небольшие значения по умолчанию,
+ * отдельные группы переопределяются по месту.
+ */
+public final class StopFactorPropertiesFixtures {
+    private StopFactorProperties.Batch batch = new StopFactorProperties.Batch(100, 1, 16, Duration.ofSeconds(30));
+    private StopFactorProperties.Cache cache = new StopFactorProperties.Cache(1_000, Duration.ofMinutes(1));
+    private StopFactorProperties.Recompute recompute = new StopFactorProperties.Recompute(1_000, 1);
+    private StopFactorProperties.Trace trace = new StopFactorProperties.Trace(0);
+    private StopFactorProperties.Budget budget = new StopFactorProperties.Budget(1_000);
+
+    private StopFactorPropertiesFixtures() {
+    }
+
+    public static StopFactorPropertiesFixtures defaults() {
+        return new StopFactorPropertiesFixtures();
+    }
+
+    public StopFactorPropertiesFixtures batch(int maxSize, int parallelism, int queueCapacity) {
+        this.batch = new StopFactorProperties.Batch(maxSize, parallelism, queueCapacity, batch.taskTimeout());
+        return this;
+    }
+
+    public StopFactorPropertiesFixtures taskTimeout(Duration taskTimeout) {
+        this.batch = new StopFactorProperties.Batch(batch.maxSize(), batch.parallelism(), batch.queueCapacity(),
+                taskTimeout);
+        return this;
+    }
+
+    public StopFactorPropertiesFixtures cache(long maximumSize, Duration expireAfterWrite) {
+        this.cache = new StopFactorProperties.Cache(maximumSize, expireAfterWrite);
+        return this;
+    }
+
+    public StopFactorPropertiesFixtures recompute(int batchSize, int parallelism) {
+        this.recompute = new StopFactorProperties.Recompute(batchSize, parallelism);
+        return this;
+    }
+
+    public StopFactorPropertiesFixtures sampleRate(double sampleRate) {
+        this.trace = new StopFactorProperties.Trace(sampleRate);
+        return this;
+    }
+
+    public StopFactorPropertiesFixtures maxPairs(int maxPairs) {
+        this.budget = new StopFactorProperties.Budget(maxPairs);
+        return this;
+    }
+
+    public StopFactorProperties build() {
+        return new StopFactorProperties(batch, cache, recompute, trace, budget);
+    }
+}
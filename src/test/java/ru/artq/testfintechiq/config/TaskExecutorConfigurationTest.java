@@ -0,0 +1,56 @@
+package ru.artq.testfintechiq.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.autoconfigure.http.HttpMessageConvertersAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.servlet.WebMvcAutoConfiguration;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.context.runner.WebApplicationContextRunner;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerAdapter;
+import ru.artq.testfintechiq.service.LevenshteinService;
+import ru.artq.testfintechiq.service.StopFactorBatchService;
+
+import java.util.concurrent.Executor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+public class TaskExecutorConfigurationTest {
+
+    private final WebApplicationContextRunner contextRunner = new WebApplicationContextRunner()
+            .withConfiguration(AutoConfigurations.of(TaskExecutionAutoConfiguration.class,
+                    JacksonAutoConfiguration.class, HttpMessageConvertersAutoConfiguration.class,
+                    WebMvcAutoConfiguration.class))
+            .withUserConfiguration(StopFactorConfiguration.class)
+            .withBean(LevenshteinService.class, () -> mock(LevenshteinService.class));
+
+    @Test
+    void mvcAsyncSupport_shouldUseBoundedApplicationTaskExecutor() {
+        contextRunner.run(context -> {
+            // Пул пакетного расчета не должен подменять исполнитель Spring Boot
+            assertThat(context.getBeansOfType(Executor.class)).containsOnlyKeys("applicationTaskExecutor");
+
+            Object asyncExecutor = ReflectionTestUtils.getField(
+                    context.getBean(RequestMappingHandlerAdapter.class), "taskExecutor");
+            assertThat(asyncExecutor)
+                    .isSameAs(context.getBean("applicationTaskExecutor"))
+                    .isInstanceOf(ThreadPoolTaskExecutor.class);
+            // Очередь пула не ограничена, поэтому потоков не больше core-size (8 по умолчанию)
+            ThreadPoolTaskExecutor pool = (ThreadPoolTaskExecutor) asyncExecutor;
+            assertThat(pool.getCorePoolSize()).isEqualTo(8);
+            assertThat(pool.getQueueCapacity()).isEqualTo(Integer.MAX_VALUE);
+        });
+    }
+
+    @Configuration(proxyBeanMethods = false)
+    @EnableConfigurationProperties(StopFactorProperties.class)
+    @Import(StopFactorBatchService.class)
+    static class StopFactorConfiguration {
+    }
+}
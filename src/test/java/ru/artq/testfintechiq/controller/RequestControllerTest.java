@@ -10,13 +10,23 @@ import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
 import ru.artq.testfintechiq.dto.StopFactorRequest;
 import ru.artq.testfintechiq.service.LevenshteinService;
+import ru.artq.testfintechiq.exception.BadRequestException;
 import ru.artq.testfintechiq.service.RequestProcessingService;
+import ru.artq.testfintechiq.service.StopFactorBatchService;
+
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -35,6 +45,9 @@ public class RequestControllerTest {
     @MockitoBean
     private LevenshteinService levenshteinService;
 
+    @MockitoBean
+    private StopFactorBatchService stopFactorBatchService;
+
     @Test
     public void processEndpoints_shouldReturnOk() throws Exception {
         // Test /api/process endpoint
@@ -84,4 +97,39 @@ public class RequestControllerTest {
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.stopFactor").value(false));
     }
-} 
\ No newline at end of file
+
+    @Test
+    public void calculateStopFactors_shouldStreamBatchResults() throws Exception {
+        var requests = List.of(
+                new StopFactorRequest("person string", "verified string"),
+                new StopFactorRequest("person string", "different string"));
+        doAnswer(invocation -> {
+            OutputStream out = invocation.getArgument(1);
+            out.write("[{\"stopFactor\":true},{\"stopFactor\":false}]".getBytes(StandardCharsets.UTF_8));
+            return null;
+        }).when(stopFactorBatchService).calculateStopFactors(anyList(), any(OutputStream.class));
+
+        MvcResult result = mockMvc.perform(post("/api/calculate/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(requests)))
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().json("[{\"stopFactor\":true},{\"stopFactor\":false}]"));
+        verify(stopFactorBatchService).validateBatch(requests);
+    }
+
+    @Test
+    public void calculateStopFactors_shouldRejectOversizedBatch() throws Exception {
+        doThrow(new BadRequestException("Batch size 2 exceeds maximum of 1"))
+                .when(stopFactorBatchService).validateBatch(anyList());
+
+        mockMvc.perform(post("/api/calculate/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[{},{}]"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Batch size 2 exceeds maximum of 1"));
+        verify(stopFactorBatchService, never()).calculateStopFactors(anyList(), any());
+    }
+}
\ No newline at end of file
@@ -0,0 +1,93 @@
+package ru.artq.testfintechiq.jfr;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.artq.testfintechiq.config.JfrProperties;
+import ru.artq.testfintechiq.config.StopFactorProperties;
+import ru.artq.testfintechiq.config.StopFactorPropertiesFixtures;
+import ru.artq.testfintechiq.service.LevenshteinService;
+import ru.artq.testfintechiq.service.SettingsService;
+import ru.artq.testfintechiq.service.SettingsSnapshot;
+import ru.artq.testfintechiq.service.StopFactorCache;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class JfrEventSwitchTest {
+
+    @TempDir
+    Path tempDir;
+
+    private JfrEventSwitch jfrEventSwitch;
+
+    @AfterEach
+    void tearDown() {
+        if (jfrEventSwitch != null) jfrEventSwitch.shutdown();
+    }
+
+    @Test
+    void enable_shouldRecordStopFactorEventsAboveThreshold() throws Exception {
+        Path destination = tempDir.resolve("events.jfr");
+        jfrEventSwitch = new JfrEventSwitch(new JfrProperties(false, Duration.ofMillis(10),
+                Duration.ofMillis(100), destination));
+        LevenshteinService levenshteinService = levenshteinService();
+
+        // Вне записи события выключены
+        levenshteinService.calculateStopFactor("Fabian Otieno", "TERESA WAMUYU THERI");
+
+        JfrEventSwitch.Status status = jfrEventSwitch.enable(Duration.ZERO, null);
+        assertTrue(status.enabled());
+        assertEquals(Duration.ZERO, status.stopFactorThreshold());
+        assertEquals(Duration.ofMillis(100), status.requestThreshold());
+
+        assertTrue(levenshteinService.calculateStopFactor("Solomon Awich", "SOLOMON RAORE AWICH"));
+        assertTrue(levenshteinService.calculateStopFactor("John Doe", "DOE JOHN"));
+
+        assertFalse(jfrEventSwitch.disable().enabled());
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(destination).stream()
+                .filter(e -> e.getEventType().getName().equals("ru.artq.testfintechiq.StopFactor"))
+                .toList();
+        assertEquals(2, events.size());
+
+        RecordedEvent computed = events.get(0);
+        assertEquals("computed", computed.getString("path"));
+        assertEquals("solomon awich", computed.getString("regPerson"));
+        assertEquals(3, computed.getInt("verifiedNameWords"));
+        assertTrue(computed.getInt("pairsScored") >= 1);
+        assertEquals(1.0, computed.getDouble("ratio"));
+        assertTrue(computed.getBoolean("stopFactor"));
+
+        assertEquals("shortcut", events.get(1).getString("path"));
+    }
+
+    @Test
+    void disable_withoutRecording_shouldKeepThresholds() {
+        jfrEventSwitch = new JfrEventSwitch(new JfrProperties(false, Duration.ofMillis(5),
+                Duration.ofMillis(50), null));
+
+        JfrEventSwitch.Status status = jfrEventSwitch.disable();
+
+        assertFalse(status.enabled());
+        assertEquals(Duration.ofMillis(5), status.stopFactorThreshold());
+        assertNull(status.startedAt());
+    }
+
+    private static LevenshteinService levenshteinService() {
+        SettingsService settingsService = mock(SettingsService.class);
+        when(settingsService.getSnapshot()).thenReturn(new SettingsSnapshot(0.9, 1, Instant.now()));
+        StopFactorProperties properties = StopFactorPropertiesFixtures.defaults().build();
+        return new LevenshteinService(settingsService,
+                new StopFactorCache(properties, new SimpleMeterRegistry()), properties, new SimpleMeterRegistry());
+    }
+}
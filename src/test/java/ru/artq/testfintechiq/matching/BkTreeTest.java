@@ -0,0 +1,72 @@
+package ru.artq.testfintechiq.matching;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class BkTreeTest {
+
+    @Test
+    void search_shouldFindKeysWithinRadius() {
+        BkTree<Integer> tree = new BkTree<>();
+        tree.add("isaacabraham", 1);
+        tree.add("isakabraham", 2);
+        tree.add("solomonawich", 3);
+        tree.add("isaacabraham", 4);
+
+        Map<String, Integer> found = new HashMap<>();
+        List<Integer> values = new ArrayList<>();
+        tree.search("isaacabraham", 2, (key, distance, keyValues) -> {
+            found.put(key, distance);
+            values.addAll(keyValues);
+        });
+
+        assertEquals(3, tree.size());
+        assertEquals(Map.of("isaacabraham", 0, "isakabraham", 2), found);
+        assertEquals(Set.of(1, 2, 4), new HashSet<>(values));
+    }
+
+    @Test
+    void search_shouldAgreeWithLinearScan() {
+        Random random = new Random(3);
+        List<String> keys = new ArrayList<>();
+        BkTree<String> tree = new BkTree<>();
+        for (int i = 0; i < 2_000; i++) {
+            String key = randomWord(random);
+            keys.add(key);
+            tree.add(key, key);
+        }
+
+        for (int i = 0; i < 200; i++) {
+            String query = randomWord(random);
+            int radius = random.nextInt(4);
+
+            Map<String, Integer> expected = new HashMap<>();
+            for (String key : keys) {
+                int distance = LevenshteinDistance.dpDistance(query, key);
+                if (distance <= radius) expected.put(key, distance);
+            }
+            Map<String, Integer> actual = new HashMap<>();
+            tree.search(query, radius, (key, distance, values) -> actual.put(key, distance));
+
+            assertEquals(expected, actual, query + " within " + radius);
+        }
+    }
+
+    private static String randomWord(Random random) {
+        int length = 3 + random.nextInt(8);
+        StringBuilder sb = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            sb.append((char) ('a' + random.nextInt(6)));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,142 @@
+package ru.artq.testfintechiq.matching;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CombinationScorerTest {
+
+    private static final CombinationScorer.PairFilter NO_FILTER = (s1, s2, maxDistance) -> false;
+
+    @Test
+    void firstMatchRatio_shouldFindMatchingCombination() {
+        String[] tokens = {"solomon", "awich"};
+        double ratio = CombinationScorer.firstMatchRatio(tokens, combinations(tokens),
+                combinations(new String[]{"solomon", "raore", "awich"}), 0.9, NO_FILTER);
+        assertEquals(1.0, ratio);
+    }
+
+    @Test
+    void firstMatchRatio_shouldReturnZeroWhenNothingReachesThreshold() {
+        String[] tokens = {"fabian", "otieno"};
+        double ratio = CombinationScorer.firstMatchRatio(tokens, combinations(tokens),
+                combinations(new String[]{"teresa", "wamuyu", "theri"}), 0.9, NO_FILTER);
+        assertEquals(0.0, ratio);
+    }
+
+    @Test
+    void firstMatchRatio_shouldHandleSingleWord() {
+        String[] tokens = {"jonathan"};
+        double ratio = CombinationScorer.firstMatchRatio(tokens, combinations(tokens),
+                List.of("johnathan"), 0.8, NO_FILTER);
+        assertEquals(1.0 - 1.0 / 9, ratio, 1e-9);
+    }
+
+    @Test
+    void firstMatchRatio_shouldSkipFilteredPairs() {
+        String[] tokens = {"john", "doe"};
+        double ratio = CombinationScorer.firstMatchRatio(tokens, combinations(tokens),
+                List.of("johndoe"), 0.9, (s1, s2, maxDistance) -> true);
+        assertEquals(0.0, ratio);
+    }
+
+    @Test
+    void firstMatchRatio_shouldAgreeWithPairwiseDistanceOnRandomNames() {
+        Random random = new Random(17);
+        for (int i = 0; i < 3_000; i++) {
+            String[] regPerson = randomName(random, 1 + random.nextInt(5));
+            String[] verifiedName = randomName(random, 1 + random.nextInt(5));
+            double threshold = 0.5 + random.nextInt(6) * 0.1;
+
+            List<String> regPersonCombinations = combinations(regPerson);
+            List<String> verifiedNameCombinations = combinations(verifiedName);
+            double expectedMax = 0.0;
+            for (String s1 : regPersonCombinations) {
+                for (String s2 : verifiedNameCombinations) {
+                    int maxLength = Math.max(s1.length(), s2.length());
+                    double ratio = 1.0 - ((double) LevenshteinDistance.dpDistance(s1, s2) / maxLength);
+                    expectedMax = Math.max(expectedMax, ratio);
+                }
+            }
+
+            double ratio = CombinationScorer.firstMatchRatio(regPerson, regPersonCombinations,
+                    verifiedNameCombinations, threshold, NO_FILTER);
+            assertEquals(expectedMax >= threshold, ratio >= threshold,
+                    "%s vs %s at %s".formatted(String.join(" ", regPerson), String.join(" ", verifiedName), threshold));
+            assertTrue(ratio <= expectedMax);
+        }
+    }
+
+    @Test
+    void bestMatch_shouldFindMaximumRatioOnRandomNames() {
+        Random random = new Random(23);
+        for (int i = 0; i < 3_000; i++) {
+            NameFingerprint regPerson = NameFingerprint.of(String.join(" ", randomName(random, 1 + random.nextInt(5))));
+            NameFingerprint verifiedName = NameFingerprint.of(String.join(" ", randomName(random, 1 + random.nextInt(5))));
+
+            double expectedMax = 0.0;
+            for (String s1 : regPerson.combinations()) {
+                for (String s2 : verifiedName.combinations()) {
+                    int maxLength = Math.max(s1.length(), s2.length());
+                    double ratio = 1.0 - ((double) LevenshteinDistance.dpDistance(s1, s2) / maxLength);
+                    expectedMax = Math.max(expectedMax, ratio);
+                }
+            }
+
+            CombinationScorer.Match match = CombinationScorer.bestMatch(regPerson, verifiedName, NO_FILTER);
+            assertEquals(expectedMax, match.ratio(), 1e-12, regPerson + " vs " + verifiedName);
+            // Пара действительно дает найденный коэффициент
+            int maxLength = Math.max(match.regPersonCombination().length(), match.verifiedNameCombination().length());
+            assertEquals(match.ratio(), 1.0 - ((double) LevenshteinDistance.dpDistance(
+                    match.regPersonCombination(), match.verifiedNameCombination()) / maxLength), 1e-12);
+        }
+    }
+
+    @Test
+    void explain_shouldScoreEveryPairInDescendingOrder() {
+        NameFingerprint regPerson = NameFingerprint.of("Isaac Abraham Ogada");
+        NameFingerprint verifiedName = NameFingerprint.of("ISAK OGADA");
+
+        List<CombinationScorer.PairScore> pairs = CombinationScorer.explain(regPerson, verifiedName);
+
+        assertEquals(3, pairs.size());
+        for (int i = 1; i < pairs.size(); i++) {
+            assertTrue(pairs.get(i - 1).ratio() >= pairs.get(i).ratio());
+        }
+        CombinationScorer.PairScore best = pairs.get(0);
+        assertEquals("isaacogada", best.regPersonCombination());
+        assertEquals("isakogada", best.verifiedNameCombination());
+        assertEquals(2, best.distance());
+        assertEquals(CombinationScorer.bestMatch(regPerson, verifiedName, NO_FILTER).ratio(), best.ratio(), 1e-12);
+    }
+
+    private static String[] randomName(Random random, int words) {
+        String[] pool = {"isaac", "isak", "abraham", "avraam", "samuel", "ogada", "solomon", "awich",
+                "raore", "ivan", "ivanov", "иван", "иванов", "петрович", "петр", "mwangi", "wanjiru",
+                "kamau", "njeri", "otieno"};
+        String[] tokens = new String[words];
+        for (int i = 0; i < words; i++) {
+            tokens[i] = pool[random.nextInt(pool.length)];
+        }
+        return tokens;
+    }
+
+    private static List<String> combinations(String[] tokens) {
+        List<String> combinations = new ArrayList<>();
+        if (tokens.length == 1) {
+            combinations.add(tokens[0]);
+            return combinations;
+        }
+        for (int i = 0; i < tokens.length; i++) {
+            for (int j = i + 1; j < tokens.length; j++) {
+                combinations.add(tokens[i] + tokens[j]);
+            }
+        }
+        return combinations;
+    }
+}
@@ -0,0 +1,135 @@
+package ru.artq.testfintechiq.matching;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+public class LevenshteinDistanceTest {
+
+    private static Stream<Arguments> distanceProvider() {
+        return Stream.of(
+                Arguments.of("kitten", "sitting", 3),
+                Arguments.of("saturday", "sunday", 3),
+                Arguments.of("abc", "def", 3),
+                Arguments.of("abc", "abcd", 1),
+                Arguments.of("", "abc", 3),
+                Arguments.of("abc", "", 3),
+                Arguments.of("", "", 0),
+                Arguments.of("isaacabraham", "abrahamisaac", 9),
+                Arguments.of("соломон", "саломон", 1)
+        );
+    }
+
+    @ParameterizedTest
+    @MethodSource("distanceProvider")
+    void distance_shouldReturnExpectedValue(String s1, String s2, int expected) {
+        assertEquals(expected, LevenshteinDistance.distance(s1, s2));
+        assertEquals(expected, LevenshteinDistance.distance(s2, s1));
+        assertEquals(expected, LevenshteinDistance.dpDistance(s1, s2));
+    }
+
+    @Test
+    void distance_shouldMatchDynamicProgrammingOnRandomInputs() {
+        Random random = new Random(7);
+        String[] alphabets = {"abcd", "abcdefghijklmnopqrstuvwxyz", "абвгдеёжзийклмнопрстуфхцчшщъыьэюя"};
+        for (int i = 0; i < 5_000; i++) {
+            String alphabet = alphabets[i % alphabets.length];
+            // Длины пересекают границу машинного слова, чтобы проверить и многоблочный вариант
+            int maxLength = i % 5 == 0 ? 200 : 70;
+            String s1 = randomString(random, alphabet, random.nextInt(maxLength));
+            String s2 = randomString(random, alphabet, random.nextInt(maxLength));
+            assertEquals(LevenshteinDistance.dpDistance(s1, s2), LevenshteinDistance.distance(s1, s2),
+                    () -> "'%s' vs '%s'".formatted(s1, s2));
+        }
+    }
+
+    @Test
+    void distance_shouldHandleWordBoundaryLengths() {
+        for (int length : new int[]{63, 64, 65, 127, 128, 129}) {
+            String s1 = "ab".repeat(length).substring(0, length);
+            String s2 = "ba".repeat(length).substring(0, length);
+            assertEquals(LevenshteinDistance.dpDistance(s1, s2), LevenshteinDistance.distance(s1, s2));
+            assertEquals(length, LevenshteinDistance.distance(s1, ""));
+            assertEquals(1, LevenshteinDistance.distance(s1, s1.substring(1)));
+        }
+    }
+
+    @Test
+    void bagDistance_shouldCountUnmatchedCharacters() {
+        assertEquals(0, LevenshteinDistance.bagDistance("listen", "silent"));
+        assertEquals(3, LevenshteinDistance.bagDistance("abc", "def"));
+        assertEquals(3, LevenshteinDistance.bagDistance("", "abc"));
+        assertEquals(2, LevenshteinDistance.bagDistance("aab", "bcd"));
+        // Повторный вызов не должен видеть остатков предыдущей гистограммы
+        assertEquals(3, LevenshteinDistance.bagDistance("abc", "def"));
+    }
+
+    @Test
+    void bagDistance_shouldBeLowerBoundOfDistance() {
+        Random random = new Random(13);
+        for (int i = 0; i < 2_000; i++) {
+            String alphabet = i % 2 == 0 ? "abcdef" : "абвгдеёжзийклмнопрстуфхцчшщъыьэюя";
+            String s1 = randomString(random, alphabet, random.nextInt(30));
+            String s2 = randomString(random, alphabet, random.nextInt(30));
+            int bag = LevenshteinDistance.bagDistance(s1, s2);
+            assertTrue(bag <= LevenshteinDistance.dpDistance(s1, s2), () -> "'%s' vs '%s'".formatted(s1, s2));
+            assertTrue(bag >= Math.abs(s1.length() - s2.length()));
+        }
+    }
+
+    @Test
+    void distance_shouldGrowBuffersForLongStrings() {
+        String s1 = "a".repeat(500);
+        String s2 = "a".repeat(250) + "b".repeat(250);
+        assertEquals(250, LevenshteinDistance.distance(s1, s2));
+    }
+
+    @Test
+    void distance_shouldNotAllocateOnHotPath() {
+        assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threadMXBean =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threadMXBean.isThreadAllocatedMemorySupported()
+                && threadMXBean.isThreadAllocatedMemoryEnabled());
+
+        String s1 = "ogadaisaacabrahamsamuel";
+        String s2 = "isaacabrahamsamuelogada";
+        String long1 = s1.repeat(4);
+        String long2 = s2.repeat(4);
+        long threadId = Thread.currentThread().getId();
+
+        // Прогрев: первые вызовы создают буферы потока
+        int checksum = LevenshteinDistance.distance(s1, s2)
+                + LevenshteinDistance.distance(long1, long2)
+                + LevenshteinDistance.dpDistance(s1, s2);
+
+        long before = threadMXBean.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < 10_000; i++) {
+            checksum += LevenshteinDistance.distance(s1, s2);
+            checksum += LevenshteinDistance.distance(long1, long2);
+            checksum += LevenshteinDistance.dpDistance(s1, s2);
+        }
+        long allocated = threadMXBean.getThreadAllocatedBytes(threadId) - before;
+
+        assertTrue(checksum > 0);
+        // Допуск покрывает служебные выделения самого замера, но не матрицы (~2.5 КБ на вызов)
+        assertTrue(allocated < 1024, "Allocated " + allocated + " bytes on the hot path");
+    }
+
+    private static String randomString(Random random, String alphabet, int length) {
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = alphabet.charAt(random.nextInt(alphabet.length()));
+        }
+        return new String(chars);
+    }
+}
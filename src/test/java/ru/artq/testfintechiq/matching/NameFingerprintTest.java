@@ -0,0 +1,109 @@
+package ru.artq.testfintechiq.matching;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import ru.artq.testfintechiq.model.RegPerson;
+import ru.artq.testfintechiq.model.VerifiedName;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class NameFingerprintTest {
+
+    private static Stream<Arguments> wordCombinationsProvider() {
+        return Stream.of(
+                Arguments.of("john doe", List.of("johndoe")),
+                Arguments.of("john doe smith", List.of("johndoe", "johnsmith", "doesmith")),
+                Arguments.of("A B C D", List.of("ab", "ac", "ad", "bc", "bd", "cd"))
+        );
+    }
+
+    @Test
+    void of_shouldNormalizeWordsAndBuildCombinations() {
+        NameFingerprint fingerprint = NameFingerprint.of("  Ogada   Isaac\tAbraham ");
+
+        assertEquals("ogada isaac abraham", fingerprint.normalized());
+        assertEquals(3, fingerprint.wordCount());
+        assertEquals(List.of("ogadaisaac", "ogadaabraham", "isaacabraham"), fingerprint.combinations());
+    }
+
+    @ParameterizedTest
+    @MethodSource("wordCombinationsProvider")
+    void combinations_shouldPairEveryTwoWordsInOrder(String name, List<String> expected) {
+        assertEquals(expected, NameFingerprint.of(name).combinations());
+    }
+
+    @Test
+    void combinationsOf_shouldPairGivenTokensAsIs() {
+        assertEquals(List.of("OgadaIsaac", "OgadaAbraham", "IsaacAbraham"),
+                NameFingerprint.combinationsOf("Ogada", "Isaac", "Abraham"));
+        assertEquals(List.of("Solomon"), NameFingerprint.combinationsOf("Solomon"));
+        assertTrue(NameFingerprint.combinationsOf().isEmpty());
+    }
+
+    @Test
+    void of_shouldHandleEmptyAndSingleWordNames() {
+        assertNull(NameFingerprint.of(null));
+
+        NameFingerprint empty = NameFingerprint.of("   ");
+        assertTrue(empty.isEmpty());
+        assertTrue(empty.combinations().isEmpty());
+
+        NameFingerprint single = NameFingerprint.of("Solomon");
+        assertEquals(List.of("solomon"), single.combinations());
+    }
+
+    @Test
+    void hasSameWords_shouldIgnoreOrderAndCase() {
+        NameFingerprint regPerson = NameFingerprint.of("Ogada Isaac Abraham Samuel");
+        NameFingerprint verifiedName = NameFingerprint.of("ISAAC ABRAHAM SAMUEL OGADA");
+
+        assertTrue(regPerson.hasSameWords(verifiedName));
+        assertFalse(regPerson.hasSameWords(NameFingerprint.of("Isaac Abraham Samuel")));
+        assertFalse(NameFingerprint.of("").hasSameWords(NameFingerprint.of("x")));
+    }
+
+    @Test
+    void equalsIgnoreCase_shouldCompareTrimmedNames() {
+        assertTrue(NameFingerprint.of(" John Doe ").equalsIgnoreCase(NameFingerprint.of("JOHN DOE")));
+        assertFalse(NameFingerprint.of("John Doe").equalsIgnoreCase(NameFingerprint.of("Doe John")));
+    }
+
+    @Test
+    void ofParts_shouldSkipNullParts() {
+        NameFingerprint fingerprint = NameFingerprint.ofParts("John", null, "Doe");
+
+        assertEquals(NameFingerprint.of("John Doe"), fingerprint);
+        assertTrue(fingerprint.equalsIgnoreCase(NameFingerprint.of("john doe")));
+        assertTrue(NameFingerprint.ofParts(null, null, null).isEmpty());
+    }
+
+    @Test
+    void strongestTokens_shouldKeepLongestWordsInOriginalOrder() {
+        NameFingerprint fingerprint = NameFingerprint.of("Mr Isaac Abraham Samuel Ogada Wa Kamau Bin Otieno Jr");
+
+        // Слова длины 5 при равенстве берутся по порядку: isaac и ogada, но не kamau
+        assertEquals("isaac abraham samuel ogada otieno", fingerprint.strongestTokens(5).normalized());
+        assertEquals("abraham", fingerprint.strongestTokens(1).normalized());
+        assertSame(fingerprint, fingerprint.strongestTokens(10));
+        assertThrows(IllegalArgumentException.class, () -> fingerprint.strongestTokens(0));
+    }
+
+    @Test
+    void entityFingerprint_shouldFollowNameSetters() {
+        RegPerson regPerson = RegPerson.builder().firstName("John").lastName("Doe").build();
+        assertEquals(NameFingerprint.of("John Doe"), regPerson.getFingerprint());
+
+        regPerson.setMiddleName("Paul");
+        assertEquals(NameFingerprint.of("John Paul Doe"), regPerson.getFingerprint());
+
+        VerifiedName verifiedName = new VerifiedName();
+        assertTrue(verifiedName.getFingerprint().isEmpty());
+        verifiedName.setSurname("Doe");
+        assertEquals(NameFingerprint.of("Doe"), verifiedName.getFingerprint());
+    }
+}
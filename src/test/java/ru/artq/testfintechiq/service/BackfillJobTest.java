@@ -0,0 +1,85 @@
+package ru.artq.testfintechiq.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import ru.artq.testfintechiq.config.BackfillProperties;
+import ru.artq.testfintechiq.exception.BadRequestException;
+import ru.artq.testfintechiq.repository.RequestContentRepository;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class BackfillJobTest {
+
+    @Mock
+    private RequestProcessingService requestProcessingService;
+
+    @Mock
+    private RequestContentRepository requestContentRepository;
+
+    @Mock
+    private StopFactorResultService stopFactorResultService;
+
+    @Test
+    void run_shouldReportProgressAndCompletion() {
+        BackfillJob job = job(BackfillProperties.Readiness.WAIT);
+        when(requestContentRepository.countPending()).thenReturn(3L);
+        doAnswer(invocation -> {
+            RequestProcessingService.ProgressListener listener = invocation.getArgument(0);
+            listener.chunkProcessed(2, 0);
+            listener.chunkProcessed(1, 1);
+            return null;
+        }).when(requestProcessingService).processAllRequests(any(RequestProcessingService.ProgressListener.class));
+        when(stopFactorResultService.countStopFactors()).thenReturn(1L);
+
+        assertFalse(job.isReady());
+        job.run();
+
+        BackfillJob.Progress progress = job.getProgress();
+        assertEquals(BackfillJob.State.COMPLETED, progress.state());
+        assertEquals(3, progress.total());
+        assertEquals(3, progress.processed());
+        assertEquals(1, progress.failed());
+        assertNotNull(progress.finishedAt());
+        assertTrue(job.isReady());
+    }
+
+    @Test
+    void run_shouldRecordFailureAndStayReady() {
+        BackfillJob job = job(BackfillProperties.Readiness.WAIT);
+        doThrow(new BadRequestException("Error processing all requests: connection refused"))
+                .when(requestProcessingService).processAllRequests(any(RequestProcessingService.ProgressListener.class));
+
+        job.run();
+
+        assertEquals(BackfillJob.State.FAILED, job.getProgress().state());
+        assertEquals("Error processing all requests: connection refused", job.getProgress().error());
+        assertTrue(job.isReady());
+    }
+
+    @Test
+    void isReady_shouldNotWaitInImmediateMode() {
+        assertTrue(job(BackfillProperties.Readiness.IMMEDIATE).isReady());
+    }
+
+    @Test
+    void start_shouldSkipWhenDisabled() {
+        BackfillJob job = new BackfillJob(requestProcessingService, requestContentRepository, stopFactorResultService,
+                new BackfillProperties(false, BackfillProperties.Readiness.WAIT));
+
+        job.start();
+
+        assertEquals(BackfillJob.State.DISABLED, job.getProgress().state());
+        assertTrue(job.isReady());
+        verifyNoInteractions(requestProcessingService);
+    }
+
+    private BackfillJob job(BackfillProperties.Readiness readiness) {
+        return new BackfillJob(requestProcessingService, requestContentRepository, stopFactorResultService,
+                new BackfillProperties(true, readiness));
+    }
+}
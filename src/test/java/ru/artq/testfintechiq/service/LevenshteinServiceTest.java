@@ -1,5 +1,6 @@
 package ru.artq.testfintechiq.service;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -8,12 +9,18 @@ import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import ru.artq.testfintechiq.config.StopFactorProperties;
+import ru.artq.testfintechiq.config.StopFactorPropertiesFixtures;
+import ru.artq.testfintechiq.dto.StopFactorExplanation;
+import ru.artq.testfintechiq.matching.NameFingerprint;
 import ru.artq.testfintechiq.model.RegPerson;
 import ru.artq.testfintechiq.model.VerifiedName;
 import ru.artq.testfintechiq.repository.RegPersonRepository;
 import ru.artq.testfintechiq.repository.VerifiedNameRepository;
 
+import java.time.Instant;
 import java.util.List;
 import java.util.stream.Stream;
 
@@ -33,19 +40,22 @@ public class LevenshteinServiceTest {
     @Mock
     private VerifiedNameRepository mockVerifiedNameRepository;
 
+    private static final StopFactorProperties PROPERTIES = StopFactorPropertiesFixtures.defaults().maxPairs(100).build();
+
+    @Spy
+    private StopFactorCache stopFactorCache = new StopFactorCache(PROPERTIES, new SimpleMeterRegistry());
+
+    @Spy
+    private StopFactorProperties stopFactorProperties = PROPERTIES;
+
+    @Spy
+    private SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
     @InjectMocks
     private LevenshteinService levenshteinService;
 
     private StringConcatenationService stringConcatenationService;
 
-    private static Stream<Arguments> wordCombinationsProvider() {
-        return Stream.of(
-                Arguments.of("john doe", List.of("johndoe")),
-                Arguments.of("john doe smith", List.of("johndoe", "johnsmith", "doesmith")),
-                Arguments.of("a b c d", List.of("ab", "ac", "ad", "bc", "bd", "cd"))
-        );
-    }
-
     private static Stream<Arguments> levenshteinRatioProvider() {
         return Stream.of(
                 Arguments.of("kitten", "sitting", 0.571), // 4 operations, max length 7
@@ -57,10 +67,14 @@ public class LevenshteinServiceTest {
 
     @BeforeEach
     void setUp() {
-        lenient().when(settingsService.getDistanceRatioThreshold()).thenReturn(0.9);
+        lenient().when(settingsService.getSnapshot()).thenReturn(snapshot(0.9, 1));
         stringConcatenationService = new StringConcatenationService();
     }
 
+    private static SettingsSnapshot snapshot(double threshold, long version) {
+        return new SettingsSnapshot(threshold, version, Instant.now());
+    }
+
     private void setupMockData() {
         // Test case 1 data
         RegPerson regPerson1 = RegPerson.builder()
@@ -135,7 +149,7 @@ public class LevenshteinServiceTest {
 
     @Test
     void calculateStopFactor_shouldReturnTrue_whenSimilarityIsAboveThreshold() {
-        when(settingsService.getDistanceRatioThreshold()).thenReturn(0.8);
+        when(settingsService.getSnapshot()).thenReturn(snapshot(0.8, 1));
 
         // "Johnathan" and "Jonathan" are similar but not exactly the same
         boolean result = levenshteinService.calculateStopFactor("Johnathan Doe", "Jonathan Doe");
@@ -156,7 +170,7 @@ public class LevenshteinServiceTest {
         result = levenshteinService.calculateStopFactor("test", null);
         assertFalse(result);
 
-        result = levenshteinService.calculateStopFactor(null, null);
+        result = levenshteinService.calculateStopFactor((String) null, null);
         assertFalse(result);
     }
 
@@ -203,53 +217,19 @@ public class LevenshteinServiceTest {
     }
 
     @Test
-    void generateWordCombinations_shouldReturnSingleWordWhenOnlyOneWordProvided() {
-        List<String> combinations = levenshteinService.generateWordCombinations("word");
-        assertEquals(List.of("word"), combinations);
-    }
-
-    @Test
-    void generateWordCombinations_shouldReturnEmptyListWhenInputIsNull() {
-        List<String> combinations = levenshteinService.generateWordCombinations(null);
-        assertTrue(combinations.isEmpty());
-    }
+    void calculateStopFactor_withFingerprints_shouldMatchStringVersion() {
+        setupMockData();
 
-    @Test
-    void generateWordCombinations_shouldReturnEmptyListWhenInputIsEmpty() {
-        List<String> combinations = levenshteinService.generateWordCombinations("");
-        assertTrue(combinations.isEmpty());
-    }
+        RegPerson regPerson = mockRegPersonRepository.findByLoanRequestId("0190e8e4-cf7b-72a5-a647-cd87e14f6715");
+        VerifiedName verifiedName = mockVerifiedNameRepository.findByLoanRequestId("0190e8e4-cf7b-72a5-a647-cd87e14f6715");
+        assertTrue(levenshteinService.calculateStopFactor(regPerson.getFingerprint(), verifiedName.getFingerprint()));
 
-    @Test
-    void testGenerateWordCombinations_withExamples() {
-        String input = "A B C";
-        List<String> combinations = levenshteinService.generateWordCombinations(input);
-        assertEquals(3, combinations.size());
-        assertTrue(combinations.contains("AB"));
-        assertTrue(combinations.contains("AC"));
-        assertTrue(combinations.contains("BC"));
-
-        input = "A B C D";
-        combinations = levenshteinService.generateWordCombinations(input);
-        assertEquals(6, combinations.size());
-        assertTrue(combinations.contains("AB"));
-        assertTrue(combinations.contains("AC"));
-        assertTrue(combinations.contains("AD"));
-        assertTrue(combinations.contains("BC"));
-        assertTrue(combinations.contains("BD"));
-        assertTrue(combinations.contains("CD"));
-
-        input = "SingleWord";
-        combinations = levenshteinService.generateWordCombinations(input);
-        assertEquals(1, combinations.size());
-        assertTrue(combinations.contains("SingleWord"));
-    }
+        regPerson = mockRegPersonRepository.findByLoanRequestId("0190e7b7-4868-73e9-8087-f2c70ea12b61");
+        verifiedName = mockVerifiedNameRepository.findByLoanRequestId("0190e7b7-4868-73e9-8087-f2c70ea12b61");
+        assertFalse(levenshteinService.calculateStopFactor(regPerson.getFingerprint(), verifiedName.getFingerprint()));
 
-    @ParameterizedTest
-    @MethodSource("wordCombinationsProvider")
-    void generateWordCombinations_shouldGenerateCorrectCombinations(String input, List<String> expected) {
-        List<String> combinations = levenshteinService.generateWordCombinations(input);
-        assertTrue(combinations.containsAll(expected) && expected.containsAll(combinations));
+        assertFalse(levenshteinService.calculateStopFactor(null, NameFingerprint.of("test")));
+        assertTrue(levenshteinService.calculateStopFactor(NameFingerprint.of(""), NameFingerprint.of(" ")));
     }
 
     @Test
@@ -282,6 +262,92 @@ public class LevenshteinServiceTest {
         assertEquals(expected, ratio, 0.001);
     }
 
+    @Test
+    void calculateStopFactor_shouldCountPrefilterRejections() {
+        // "johndoe" и "janesmith": разница длин больше допустимого расстояния
+        assertFalse(levenshteinService.calculateStopFactor("John Doe", "Jane Smith"));
+        assertEquals(1, levenshteinService.getLengthFilterRejections());
+        assertEquals(0, levenshteinService.getBagFilterRejections());
+
+        // Равные длины, но разные наборы символов
+        assertFalse(levenshteinService.calculateStopFactor("abcd efgh", "ijkl mnop"));
+        assertEquals(1, levenshteinService.getLengthFilterRejections());
+        assertEquals(1, levenshteinService.getBagFilterRejections());
+        assertEquals(1.0, meterRegistry.get("stop-factor.prefilter.rejections").tag("filter", "bag")
+                .functionCounter().count());
+    }
+
+    @Test
+    void calculateStopFactor_shouldRecordMetricsByPath() {
+        assertTrue(levenshteinService.calculateStopFactor("John Doe", "DOE JOHN"));
+        assertTrue(levenshteinService.calculateStopFactor("Solomon Awich", "SOLOMON RAORE AWICH"));
+        assertTrue(levenshteinService.calculateStopFactor("Solomon Awich", "SOLOMON RAORE AWICH"));
+
+        assertEquals(1, meterRegistry.get("stop-factor.calculate").tag("path", "shortcut").timer().count());
+        assertEquals(1, meterRegistry.get("stop-factor.calculate").tag("path", "computed").timer().count());
+        assertEquals(1, meterRegistry.get("stop-factor.calculate").tag("path", "cached").timer().count());
+        // Совпадение "solomonawich" найдено на второй паре, перебор остановлен
+        assertEquals(1, meterRegistry.get("stop-factor.early-exit").counter().count());
+        assertEquals(1, meterRegistry.get("stop-factor.pairs").tag("mode", "first").summary().count());
+        assertTrue(meterRegistry.get("stop-factor.pairs").tag("mode", "first").summary().totalAmount() >= 1);
+    }
+
+    @Test
+    void explain_shouldReportReasonAndPairs() {
+        StopFactorExplanation sameWords = levenshteinService.explain(
+                NameFingerprint.of("John Doe"), NameFingerprint.of("DOE JOHN"));
+        assertEquals(StopFactorExplanation.Reason.SAME_WORDS, sameWords.reason());
+        assertEquals(1.0, sameWords.bestRatio());
+        assertTrue(sameWords.stopFactor());
+
+        StopFactorExplanation pair = levenshteinService.explain(
+                NameFingerprint.of("Solomon Awich"), NameFingerprint.of("SOLOMON RAORE AWICH"));
+        assertEquals(StopFactorExplanation.Reason.PAIR_ABOVE_THRESHOLD, pair.reason());
+        assertEquals(3, pair.pairs().size());
+        assertEquals("solomonawich", pair.pairs().get(0).verifiedNameCombination());
+        assertEquals(0.9, pair.threshold());
+
+        StopFactorExplanation noMatch = levenshteinService.explain(
+                NameFingerprint.of("Fabian Otieno"), NameFingerprint.of("TERESA WAMUYU THERI"));
+        assertEquals(StopFactorExplanation.Reason.NO_PAIR_ABOVE_THRESHOLD, noMatch.reason());
+        assertFalse(noMatch.stopFactor());
+        assertEquals(noMatch.pairs().get(0).ratio(), noMatch.bestRatio());
+    }
+
+    @Test
+    void calculateStopFactor_shouldReduceLongNamesToBudget() {
+        // 45 x 28 пар больше бюджета 100: остаются по 5 самых длинных слов, в обоих есть "isaac ogada"
+        NameFingerprint regPerson = NameFingerprint.of("Mr Isaac Abraham Samuel Ogada Wa Kamau Bin Otieno Jr");
+        NameFingerprint verifiedName = NameFingerprint.of("DR ISAAC S OGADA WA KAMAU BIN OTIENO");
+
+        assertTrue(levenshteinService.calculateStopFactor(regPerson, verifiedName));
+        assertEquals(1, meterRegistry.get("stop-factor.budget.exceeded").tag("mode", "first").counter().count());
+        assertTrue(meterRegistry.get("stop-factor.pairs").tag("mode", "first").summary().max() <= 100);
+
+        assertEquals(1.0, levenshteinService.calculateBestMatch(regPerson, verifiedName).ratio());
+        assertEquals(1, meterRegistry.get("stop-factor.budget.exceeded").tag("mode", "best").counter().count());
+
+        StopFactorExplanation explanation = levenshteinService.explain(regPerson, verifiedName);
+        assertTrue(explanation.budgetExceeded());
+        assertEquals(100, explanation.pairs().size());
+        assertEquals("isaacogada", explanation.pairs().get(0).regPersonCombination());
+    }
+
+    @Test
+    void calculateStopFactor_shouldNotReduceNamesWithinBudget() {
+        assertTrue(levenshteinService.calculateStopFactor("Solomon Awich", "SOLOMON RAORE AWICH"));
+
+        assertEquals(0, meterRegistry.get("stop-factor.budget.exceeded").tag("mode", "first").counter().count());
+        assertFalse(levenshteinService.explain(NameFingerprint.of("Solomon Awich"),
+                NameFingerprint.of("SOLOMON RAORE AWICH")).budgetExceeded());
+    }
+
+    @Test
+    void calculateStopFactor_prefiltersShouldNotRejectMatches() {
+        assertTrue(levenshteinService.calculateStopFactor("Solomon Awich", "SOLOMON RAORE AWICH"));
+        assertTrue(levenshteinService.calculateStopFactor("Ogada Isaac Abraham Samuel", "ISAAC ABRAHAM SAMUEL OGADA"));
+    }
+
     @Test
     void testStopFactorCalculationWithMocks() {
         setupMockData();
@@ -316,4 +382,25 @@ public class LevenshteinServiceTest {
         boolean stopFactor3 = levenshteinService.calculateStopFactor(regPersonString3, verifiedNameString3);
         assertFalse(stopFactor3, "Stop factor for test case 3 should be false");
     }
-} 
\ No newline at end of file
+
+    @Test
+    void calculateStopFactor_shouldReuseCachedResultForReversedPair() {
+        assertTrue(levenshteinService.calculateStopFactor("Solomon Awich", "SOLOMON RAORE AWICH"));
+        assertTrue(levenshteinService.calculateStopFactor("solomon raore awich", "solomon awich"));
+        assertFalse(levenshteinService.calculateStopFactor("Fabian Otieno", "Teresa Wamuyu Theri"));
+
+        assertEquals(1, stopFactorCache.stats().hitCount());
+        assertEquals(2, stopFactorCache.stats().missCount());
+    }
+
+    @Test
+    void calculateStopFactor_shouldNotReuseResultAfterThresholdChange() {
+        assertTrue(levenshteinService.calculateStopFactor("Jonathan Smith", "Johnathan Smith"));
+
+        when(settingsService.getSnapshot()).thenReturn(snapshot(1.0, 2));
+        assertFalse(levenshteinService.calculateStopFactor("Jonathan Smith", "Johnathan Smith"));
+
+        assertEquals(0, stopFactorCache.stats().hitCount());
+        assertEquals(2, stopFactorCache.stats().missCount());
+    }
+}
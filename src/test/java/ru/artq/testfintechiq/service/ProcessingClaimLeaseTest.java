@@ -0,0 +1,133 @@
+package ru.artq.testfintechiq.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.artq.testfintechiq.config.ProcessingProperties;
+import ru.artq.testfintechiq.model.ProcessingClaim;
+import ru.artq.testfintechiq.repository.ProcessingClaimRepository;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Аренда порций на настоящей схеме: два узла делят прогон, порцию упавшего узла
+ * после истечения аренды забирает другой. H2 в режиме PostgreSQL;
+ * {@code pg_advisory_xact_lock} заменен функцией {@link #advisoryXactLock}.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:claims;MODE=PostgreSQL;NON_KEYWORDS=VALUE;"
+                + "INIT=CREATE ALIAS IF NOT EXISTS PG_ADVISORY_XACT_LOCK"
+                + " FOR 'ru.artq.testfintechiq.service.ProcessingClaimLeaseTest.advisoryXactLock'",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.liquibase.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create-drop"
+})
+public class ProcessingClaimLeaseTest {
+
+    @Autowired
+    private ProcessingClaimRepository processingClaimRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private ProcessingClaimService node1;
+    private ProcessingClaimService node2;
+
+    public static ResultSet advisoryXactLock(Connection connection, long key) throws SQLException {
+        return connection.createStatement().executeQuery("SELECT 1");
+    }
+
+    @BeforeEach
+    void setUp() {
+        node1 = node("node-1");
+        node2 = node("node-2");
+    }
+
+    @Test
+    void claimNext_shouldTakeOverClaimAfterLeaseExpires() {
+        String runId = node1.joinOrStartRun(0, 10, 5);
+        ProcessingClaim first = node1.claimNext(runId).orElseThrow();
+        ProcessingClaim second = node2.claimNext(runId).orElseThrow();
+        node2.complete(second);
+
+        // node-1 упал с арендой: свободных порций нет, но прогон не завершен
+        assertTrue(node2.claimNext(runId).isEmpty());
+        assertTrue(node2.hasIncomplete(runId));
+
+        expireLease(first);
+        ProcessingClaim takenOver = node2.claimNext(runId).orElseThrow();
+        assertEquals(first.getId(), takenOver.getId());
+        assertEquals("node-2", ownerOf(first));
+
+        // Отметка поздно очнувшегося узла не засчитывается, порцию завершает новый владелец
+        node1.complete(first);
+        assertTrue(node2.hasIncomplete(runId));
+        node2.complete(takenOver);
+        assertFalse(node2.hasIncomplete(runId));
+        assertNotEquals(runId, node1.joinOrStartRun(0, 10, 5));
+    }
+
+    @Test
+    void joinOrStartRun_shouldExtendActiveRunToCallerRange() {
+        String runId = node1.joinOrStartRun(5, 10, 5);
+
+        assertEquals(runId, node2.joinOrStartRun(0, 20, 5));
+
+        List<long[]> ranges = jdbcTemplate.query(
+                "SELECT from_id, to_id FROM processing_claim WHERE run_id = ? ORDER BY from_id",
+                (rs, i) -> new long[]{rs.getLong(1), rs.getLong(2)}, runId);
+        assertEquals(4, ranges.size());
+        assertArrayEquals(new long[]{0, 5}, ranges.get(0));
+        assertArrayEquals(new long[]{5, 10}, ranges.get(1));
+        assertArrayEquals(new long[]{10, 15}, ranges.get(2));
+        assertArrayEquals(new long[]{15, 20}, ranges.get(3));
+    }
+
+    @Test
+    void claimNext_shouldAbandonClaimAfterMaxAttempts() {
+        String runId = node1.joinOrStartRun(0, 5, 5);
+
+        for (int attempt = 0; attempt < 3; attempt++) {
+            ProcessingClaim claim = node1.claimNext(runId).orElseThrow();
+            node1.release(claim);
+        }
+
+        assertTrue(node1.claimNext(runId).isEmpty());
+        assertFalse(node1.hasIncomplete(runId));
+        assertNotEquals(runId, node2.joinOrStartRun(0, 5, 5));
+    }
+
+    private ProcessingClaimService node(String owner) {
+        return new ProcessingClaimService(processingClaimRepository, transactionTemplate,
+                new ProcessingProperties(5, 1, new ProcessingProperties.Claim(true, Duration.ofMinutes(5), owner,
+                        3, Duration.ofMillis(1))));
+    }
+
+    private void expireLease(ProcessingClaim claim) {
+        jdbcTemplate.update("UPDATE processing_claim SET lease_until = now() - INTERVAL '1' SECOND WHERE id = ?",
+                claim.getId());
+    }
+
+    private String ownerOf(ProcessingClaim claim) {
+        return jdbcTemplate.queryForObject("SELECT owner FROM processing_claim WHERE id = ?", String.class,
+                claim.getId());
+    }
+}
@@ -0,0 +1,108 @@
+package ru.artq.testfintechiq.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.artq.testfintechiq.config.ProcessingProperties;
+import ru.artq.testfintechiq.model.ProcessingClaim;
+import ru.artq.testfintechiq.repository.ProcessingClaimRepository;
+
+import java.time.Duration;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class ProcessingClaimServiceTest {
+
+    @Mock
+    private ProcessingClaimRepository processingClaimRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private ProcessingClaimService processingClaimService;
+
+    @BeforeEach
+    void setUp() {
+        processingClaimService = new ProcessingClaimService(processingClaimRepository,
+                new TransactionTemplate(transactionManager),
+                new ProcessingProperties(500, 1, new ProcessingProperties.Claim(true, Duration.ofMinutes(2), "node-1", 3, Duration.ofSeconds(5))));
+    }
+
+    @Test
+    void joinOrStartRun_shouldJoinActiveRun() {
+        when(processingClaimRepository.findActiveRunId(3)).thenReturn("run-1");
+        when(processingClaimRepository.findRunStart("run-1")).thenReturn(0L);
+        when(processingClaimRepository.findRunEnd("run-1")).thenReturn(1_000L);
+
+        assertEquals("run-1", processingClaimService.joinOrStartRun(0, 1_000, 500));
+
+        verify(processingClaimRepository).lockRuns(anyLong());
+        verify(processingClaimRepository, never()).createRun(anyString(), anyLong(), anyLong(), anyLong());
+    }
+
+    @Test
+    void joinOrStartRun_shouldExtendActiveRunToCallerRange() {
+        when(processingClaimRepository.findActiveRunId(3)).thenReturn("run-1");
+        when(processingClaimRepository.findRunStart("run-1")).thenReturn(500L);
+        when(processingClaimRepository.findRunEnd("run-1")).thenReturn(1_000L);
+
+        assertEquals("run-1", processingClaimService.joinOrStartRun(0, 2_000, 500));
+
+        verify(processingClaimRepository).createRun("run-1", 0, 500, 500);
+        verify(processingClaimRepository).createRun("run-1", 1_000, 2_000, 500);
+        verify(processingClaimRepository, never()).deleteCompleted();
+    }
+
+    @Test
+    void joinOrStartRun_shouldCreateRunUnderLock() {
+        when(processingClaimRepository.findActiveRunId(3)).thenReturn(null);
+
+        String runId = processingClaimService.joinOrStartRun(0, 1_000, 500);
+
+        InOrder inOrder = inOrder(processingClaimRepository);
+        inOrder.verify(processingClaimRepository).lockRuns(anyLong());
+        inOrder.verify(processingClaimRepository).findActiveRunId(3);
+        inOrder.verify(processingClaimRepository).deleteCompleted();
+        inOrder.verify(processingClaimRepository).createRun(runId, 0, 1_000, 500);
+    }
+
+    @Test
+    void claimNext_shouldLeaseLockedClaim() {
+        ProcessingClaim claim = new ProcessingClaim(7L, "run-1", 0L, 500L, null, null, null, 0);
+        when(processingClaimRepository.lockNextFree("run-1", 3)).thenReturn(Optional.of(claim));
+
+        assertEquals(Optional.of(claim), processingClaimService.claimNext("run-1"));
+
+        verify(processingClaimRepository).lease(7L, "node-1", 120L);
+    }
+
+    @Test
+    void claimNext_shouldReturnEmptyWhenNothingIsFree() {
+        when(processingClaimRepository.lockNextFree("run-1", 3)).thenReturn(Optional.empty());
+
+        assertTrue(processingClaimService.claimNext("run-1").isEmpty());
+
+        verify(processingClaimRepository, never()).lease(anyLong(), anyString(), anyLong());
+    }
+
+    @Test
+    void complete_shouldMarkOwnClaim() {
+        ProcessingClaim claim = new ProcessingClaim(7L, "run-1", 0L, 500L, "node-1", null, null, 1);
+        when(processingClaimRepository.complete(7L, "node-1")).thenReturn(1);
+
+        processingClaimService.complete(claim);
+
+        verify(processingClaimRepository).complete(7L, "node-1");
+    }
+}
@@ -0,0 +1,121 @@
+package ru.artq.testfintechiq.service;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import ru.artq.testfintechiq.model.AccountInfo;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RequestContentParserTest {
+
+    private final RequestContentParser parser = new RequestContentParser(new ObjectMapper());
+
+    @Test
+    void parse_shouldExtractAllSections() throws Exception {
+        RequestContentParser.ParsedRequest request = parser.parse("""
+                {
+                  "meta": {"source": "bureau", "tags": [1, 2, {"x": null}]},
+                  "regPerson": {"firstName": "Ogada", "middleName": "Isaac Abraham", "lastName": "Samuel", "age": 30},
+                  "creditBureau": {
+                    "verified_name": {"first_name": "IGNORED"},
+                    "account_info": [{"account_number": "1"}, {"account_number": "2"}],
+                    "score": 700
+                  },
+                  "verified_name": {"first_name": "ISAAC", "other_name": "ABRAHAM SAMUEL", "surname": "OGADA"},
+                  "loanRequestID": "0190e7b2"
+                }""");
+
+        assertEquals("0190e7b2", request.loanRequestId());
+        assertEquals("Ogada", request.regPerson().getFirstName());
+        assertEquals("Isaac Abraham", request.regPerson().getMiddleName());
+        assertEquals("Samuel", request.regPerson().getLastName());
+        assertEquals("0190e7b2", request.regPerson().getLoanRequestId());
+        assertEquals("ISAAC", request.verifiedName().getFirstName());
+        assertEquals("OGADA", request.verifiedName().getSurname());
+        assertEquals(2, request.accounts().size());
+        assertEquals("0190e7b2", request.accounts().get(1).getLoanRequestId());
+    }
+
+    @Test
+    void parse_shouldFallBackToBureauVerifiedName() throws Exception {
+        RequestContentParser.ParsedRequest request = parser.parse("""
+                {"loanRequestID": 42, "creditBureau": {"verified_name": {"first_name": "SOLOMON", "surname": null}}}""");
+
+        assertEquals("42", request.loanRequestId());
+        assertNull(request.regPerson());
+        assertEquals("SOLOMON", request.verifiedName().getFirstName());
+        assertNull(request.verifiedName().getSurname());
+        assertNull(request.accounts());
+    }
+
+    @Test
+    void parse_shouldConvertAccountFields() throws Exception {
+        RequestContentParser.ParsedRequest request = parser.parse("""
+                {"loanRequestID": "1", "creditBureau": {"account_info": [{
+                  "account_number": "ACC-1",
+                  "account_status": "Active",
+                  "current_balance": 12345678901234567890.12,
+                  "last_payment_amount": "250.75",
+                  "original_amount": "n/a",
+                  "overdue_balance": null,
+                  "date_opened": "2021-03-15",
+                  "last_payment_date": "2021-02-30",
+                  "loaded_at": "null",
+                  "overdue_date": "15.03.2021",
+                  "days_in_arrears": 5,
+                  "highest_days_in_arrears": "17",
+                  "product_type_id": "abc",
+                  "is_your_account": "true",
+                  "delinquency_code": 3
+                }]}}""");
+
+        AccountInfo account = request.accounts().get(0);
+        assertEquals("ACC-1", account.getAccountNumber());
+        assertEquals("Active", account.getAccountStatus());
+        assertEquals(new BigDecimal("12345678901234567890.12"), account.getCurrentBalance());
+        assertEquals(new BigDecimal("250.75"), account.getLastPaymentAmount());
+        assertNull(account.getOriginalAmount());
+        assertNull(account.getOverdueBalance());
+        assertEquals(LocalDate.of(2021, 3, 15), account.getDateOpened());
+        assertNull(account.getLastPaymentDate());
+        assertNull(account.getLoadedAt());
+        assertNull(account.getOverdueDate());
+        assertEquals(5, account.getDaysInArrears());
+        assertEquals(17, account.getHighestDaysInArrears());
+        assertEquals(0, account.getProductTypeId());
+        assertTrue(account.getIsYourAccount());
+        assertEquals("3", account.getDelinquencyCode());
+    }
+
+    @Test
+    void parse_shouldHandleManyAccounts() throws Exception {
+        StringBuilder json = new StringBuilder("{\"loanRequestID\": \"big\", \"creditBureau\": {\"account_info\": [");
+        for (int i = 0; i < 500; i++) {
+            if (i > 0) json.append(',');
+            json.append("{\"account_number\": \"").append(i)
+                    .append("\", \"current_balance\": ").append(i).append(".5")
+                    .append(", \"date_opened\": \"2020-01-").append(String.format("%02d", 1 + i % 28)).append("\"}");
+        }
+        json.append("]}}");
+
+        RequestContentParser.ParsedRequest request = parser.parse(json.toString());
+
+        assertEquals(500, request.accounts().size());
+        AccountInfo last = request.accounts().get(499);
+        assertEquals("499", last.getAccountNumber());
+        assertEquals(new BigDecimal("499.5"), last.getCurrentBalance());
+        assertEquals(LocalDate.of(2020, 1, 1 + 499 % 28), last.getDateOpened());
+    }
+
+    @Test
+    void parse_shouldReturnNoIdForMissingFieldOrNonObject() throws Exception {
+        assertNull(parser.parse("{}").loanRequestId());
+        assertNull(parser.parse("[1, 2]").loanRequestId());
+        assertNull(parser.parse("").loanRequestId());
+        assertThrows(JsonParseException.class, () -> parser.parse("invalid json"));
+    }
+}
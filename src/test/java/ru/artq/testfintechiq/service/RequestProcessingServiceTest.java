@@ -1,17 +1,25 @@
 package ru.artq.testfintechiq.service;
 
-import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.artq.testfintechiq.config.ProcessingProperties;
 import ru.artq.testfintechiq.exception.BadRequestException;
-import ru.artq.testfintechiq.model.RegPerson;
+import ru.artq.testfintechiq.model.AccountInfo;
+import ru.artq.testfintechiq.model.ProcessingClaim;
 import ru.artq.testfintechiq.model.RequestContent;
 import ru.artq.testfintechiq.model.VerifiedName;
 import ru.artq.testfintechiq.repository.AccountInfoRepository;
@@ -19,13 +27,16 @@ import ru.artq.testfintechiq.repository.RegPersonRepository;
 import ru.artq.testfintechiq.repository.RequestContentRepository;
 import ru.artq.testfintechiq.repository.VerifiedNameRepository;
 
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -43,18 +54,34 @@ public class RequestProcessingServiceTest {
     @Mock
     private AccountInfoRepository accountInfoRepository;
 
+    @Spy
+    private RequestContentParser requestContentParser = new RequestContentParser(new ObjectMapper());
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
     @Mock
-    private ObjectMapper objectMapper;
+    private EntityManager entityManager;
+
+    @Mock
+    private ProcessingClaimService processingClaimService;
+
+    @Mock
+    private StopFactorResultService stopFactorResultService;
 
-    @InjectMocks
     private RequestProcessingService requestProcessingService;
+    private SimpleMeterRegistry meterRegistry;
 
     private ObjectMapper realObjectMapper;
-    private JsonNode sampleJsonNode;
     private String sampleJsonString;
 
     @BeforeEach
     void setUp() throws Exception {
+        meterRegistry = new SimpleMeterRegistry();
+        requestProcessingService = service(1);
         realObjectMapper = new ObjectMapper();
 
         ObjectNode rootNode = realObjectMapper.createObjectNode();
@@ -75,19 +102,12 @@ public class RequestProcessingServiceTest {
         ObjectNode creditBureau = realObjectMapper.createObjectNode();
         rootNode.set("creditBureau", creditBureau);
 
-        sampleJsonNode = rootNode;
         sampleJsonString = realObjectMapper.writeValueAsString(rootNode);
-
-        lenient().when(objectMapper.readTree(anyString())).thenReturn(sampleJsonNode);
-        lenient().when(objectMapper.writeValueAsString(any(JsonNode.class))).thenReturn(sampleJsonString);
     }
 
     @Test
-    void processRequest_validation() throws Exception {
+    void processRequest_validation() {
         // Missing loanRequestID
-        ObjectNode invalidNode = realObjectMapper.createObjectNode();
-        when(objectMapper.readTree(anyString())).thenReturn(invalidNode);
-
         BadRequestException exception = assertThrows(BadRequestException.class,
                 () -> requestProcessingService.processRequest("{}"));
         assertEquals("Missing required field: loanRequestID", exception.getMessage());
@@ -95,97 +115,305 @@ public class RequestProcessingServiceTest {
 
     @Test
     void processRequest_contentHandling() {
-        // New content - should save
-        when(requestContentRepository.findByLoanRequestId(anyString())).thenReturn(null);
-        requestProcessingService.processRequest(sampleJsonString);
-
-        ArgumentCaptor<RequestContent> contentCaptor = ArgumentCaptor.forClass(RequestContent.class);
-        verify(requestContentRepository).save(contentCaptor.capture());
-
-        RequestContent savedContent = contentCaptor.getValue();
-        assertEquals("12345", savedContent.getLoanRequestId());
-        assertEquals(sampleJsonString, savedContent.getContent());
-
-        // Existing content - should not save
-        RequestContent existingContent = new RequestContent();
-        existingContent.setLoanRequestId("12345");
-        when(requestContentRepository.findByLoanRequestId("12345")).thenReturn(existingContent);
+        // Content is inserted only if absent; the database decides
+        when(requestContentRepository.insertIfAbsent(eq("12345"), anyString(), any())).thenReturn(1, 0);
 
         requestProcessingService.processRequest(sampleJsonString);
-        verify(requestContentRepository, times(1)).save(any(RequestContent.class));
+        requestProcessingService.processRequest(sampleJsonString);
+
+        verify(requestContentRepository, times(2)).insertIfAbsent(eq("12345"), eq(sampleJsonString), any());
+        verify(requestContentRepository, times(2)).lockByLoanRequestId("12345");
+        verify(requestContentRepository, never()).findByLoanRequestId(anyString());
+        verify(requestContentRepository, never()).save(any(RequestContent.class));
     }
 
     @Test
     void processRequest_entitySaving() {
-        when(requestContentRepository.findByLoanRequestId(anyString())).thenReturn(null);
-        when(regPersonRepository.findByLoanRequestId(anyString())).thenReturn(null);
-        when(verifiedNameRepository.findByLoanRequestId(anyString())).thenReturn(null);
+        when(verifiedNameRepository.insertIfAbsent(anyString(), any(), any(), any())).thenReturn(1);
 
         requestProcessingService.processRequest(sampleJsonString);
 
         // Verify RegPerson is saved
-        ArgumentCaptor<RegPerson> regPersonCaptor = ArgumentCaptor.forClass(RegPerson.class);
-        verify(regPersonRepository).save(regPersonCaptor.capture());
-
-        RegPerson savedRegPerson = regPersonCaptor.getValue();
-        assertEquals("12345", savedRegPerson.getLoanRequestId());
-        assertEquals("John", savedRegPerson.getFirstName());
-        assertEquals("William", savedRegPerson.getMiddleName());
-        assertEquals("Doe", savedRegPerson.getLastName());
+        verify(regPersonRepository).insertIfAbsent("12345", "John", "William", "Doe");
 
         // Verify VerifiedName is saved
-        ArgumentCaptor<VerifiedName> verifiedNameCaptor = ArgumentCaptor.forClass(VerifiedName.class);
-        verify(verifiedNameRepository).save(verifiedNameCaptor.capture());
+        verify(verifiedNameRepository).insertIfAbsent("12345", "JOHN", "WILLIAM", "DOE");
 
-        VerifiedName savedVerifiedName = verifiedNameCaptor.getValue();
+        ArgumentCaptor<VerifiedNameSavedEvent> eventCaptor = ArgumentCaptor.forClass(VerifiedNameSavedEvent.class);
+        verify(eventPublisher).publishEvent(eventCaptor.capture());
+        VerifiedName savedVerifiedName = eventCaptor.getValue().verifiedName();
         assertEquals("12345", savedVerifiedName.getLoanRequestId());
         assertEquals("JOHN", savedVerifiedName.getFirstName());
         assertEquals("WILLIAM", savedVerifiedName.getOtherName());
         assertEquals("DOE", savedVerifiedName.getSurname());
+
+        // Стоп-фактор рассчитывается и сохраняется при приеме заявки
+        verify(stopFactorResultService).record(eq("12345"), any(), any());
+
+        // Каждый этап обработки попадает в свой таймер
+        for (String stage : List.of("parse", "request_content", "reg_person", "verified_name",
+                "account_info", "stop_factor_result", "mark_processed")) {
+            assertEquals(1, meterRegistry.get("processing.stage").tag("stage", stage).timer().count(), stage);
+        }
+    }
+
+    @Test
+    void processRequest_shouldNotPublishEventForExistingVerifiedName() {
+        when(verifiedNameRepository.insertIfAbsent(anyString(), any(), any(), any())).thenReturn(0);
+
+        requestProcessingService.processRequest(sampleJsonString);
+
+        verify(eventPublisher, never()).publishEvent(any());
     }
 
     @Test
     void processAllRequests_handling() throws Exception {
         // Multiple requests
         List<RequestContent> requests = new ArrayList<>();
-        RequestContent request1 = new RequestContent();
-        request1.setLoanRequestId("12345");
-        request1.setContent(sampleJsonString);
-        requests.add(request1);
-
-        RequestContent request2 = new RequestContent();
-        request2.setLoanRequestId("67890");
-        request2.setContent(sampleJsonString);
-        requests.add(request2);
+        requests.add(requestContent(1L, "12345", sampleJsonString));
+        requests.add(requestContent(2L, "67890", sampleJsonString));
 
-        when(requestContentRepository.findAll()).thenReturn(requests);
-        when(objectMapper.readTree(anyString())).thenReturn(sampleJsonNode);
+        when(requestContentRepository.findMinPendingId()).thenReturn(1L);
+        when(requestContentRepository.findMaxPendingId()).thenReturn(2L);
+        when(requestContentRepository.findPendingChunk(0L, 2L, Limit.of(2)))
+                .thenReturn(requests);
 
         requestProcessingService.processAllRequests();
-        verify(objectMapper, times(2)).readTree(anyString());
+        verify(requestContentParser, times(2)).parse(sampleJsonString);
 
         // Error handling - one request fails but processing continues
         List<RequestContent> mixedRequests = new ArrayList<>();
-        RequestContent badRequest = new RequestContent();
-        badRequest.setLoanRequestId("12345");
-        badRequest.setContent("invalid json");
-        mixedRequests.add(badRequest);
-
-        RequestContent goodRequest = new RequestContent();
-        goodRequest.setLoanRequestId("67890");
-        goodRequest.setContent(sampleJsonString);
-        mixedRequests.add(goodRequest);
-
-        when(requestContentRepository.findAll()).thenReturn(mixedRequests);
-        when(objectMapper.readTree("invalid json")).thenThrow(new RuntimeException("Invalid JSON"));
-        reset(objectMapper);
-        when(objectMapper.readTree("invalid json")).thenThrow(new RuntimeException("Invalid JSON"));
-        when(objectMapper.readTree(sampleJsonString)).thenReturn(sampleJsonNode);
+        mixedRequests.add(requestContent(1L, "12345", "invalid json"));
+        mixedRequests.add(requestContent(2L, "67890", sampleJsonString));
+
+        when(requestContentRepository.findPendingChunk(0L, 2L, Limit.of(2)))
+                .thenReturn(mixedRequests);
+        reset(requestContentParser, regPersonRepository);
 
         // Should not throw exception
         requestProcessingService.processAllRequests();
 
         // Should still process the second request - без конкретного количества
-        verify(objectMapper).readTree(sampleJsonString);
+        verify(requestContentParser).parse(sampleJsonString);
+        verify(regPersonRepository).insertIfAbsent("12345", "John", "William", "Doe");
+        // Упавший запрос помечается для следующего прогона
+        verify(requestContentRepository).markFailed(eq(List.of(1L)), any());
+    }
+
+    @Test
+    void processAllRequests_shouldRollBackChunkOnDatabaseErrorAndRetryOneByOne() throws Exception {
+        String brokenJson = sampleJsonString.replace("12345", "67890");
+        when(requestContentRepository.findMinPendingId()).thenReturn(1L);
+        when(requestContentRepository.findMaxPendingId()).thenReturn(2L);
+        when(requestContentRepository.findPendingChunk(0L, 2L, Limit.of(2)))
+                .thenReturn(List.of(requestContent(1L, "12345", sampleJsonString),
+                        requestContent(2L, "67890", brokenJson)));
+        // lenient: вызовы для исправной заявки идут с другими аргументами
+        lenient().when(regPersonRepository.insertIfAbsent(eq("67890"), any(), any(), any()))
+                .thenThrow(new DataIntegrityViolationException("value too long for type character varying(255)"));
+
+        requestProcessingService.processAllRequests();
+
+        // Ошибка базы данных не отмечается внутри испорченной транзакции: порция откатывается
+        // и повторяется по одному запросу, исправный запрос фиксируется отдельно
+        verify(transactionManager, times(2)).rollback(any());
+        verify(regPersonRepository, times(2)).insertIfAbsent("12345", "John", "William", "Doe");
+        verify(transactionManager, times(2)).commit(any());
+        verify(requestContentRepository).markFailed(eq(List.of(2L)), any());
+        assertEquals(1, meterRegistry.counter("processing.requests",
+                "mode", "sequential", "outcome", "failed").count());
+    }
+
+    @Test
+    void processAllRequests_shouldReadChunksAfterLastId() throws Exception {
+        when(requestContentRepository.findMinPendingId()).thenReturn(3L);
+        when(requestContentRepository.findMaxPendingId()).thenReturn(9L);
+        when(requestContentRepository.findPendingChunk(2L, 9L, Limit.of(2)))
+                .thenReturn(List.of(requestContent(3L, "1", sampleJsonString), requestContent(7L, "2", sampleJsonString)));
+        when(requestContentRepository.findPendingChunk(7L, 9L, Limit.of(2)))
+                .thenReturn(List.of(requestContent(9L, "3", sampleJsonString)));
+
+        requestProcessingService.processAllRequests();
+
+        verify(requestContentParser, times(3)).parse(sampleJsonString);
+        verify(requestContentRepository, never()).findPendingChunk(eq(9L), any(), any());
+        // Транзакция и очистка контекста на каждую порцию
+        verify(transactionManager, times(2)).commit(any());
+        verify(entityManager, times(2)).clear();
+        assertEquals(3, meterRegistry.counter("processing.requests",
+                "mode", "sequential", "outcome", "processed").count());
+    }
+
+    @Test
+    void processAllRequests_shouldSkipEmptyTable() {
+        when(requestContentRepository.findMinPendingId()).thenReturn(null);
+
+        requestProcessingService.processAllRequests();
+
+        verify(requestContentRepository, never()).findPendingChunk(any(), any(), any());
+    }
+
+    @Test
+    void processAllRequests_shouldSplitIdRangeBetweenWorkers() throws Exception {
+        RequestProcessingService parallelService = service(2);
+        when(requestContentRepository.findMinPendingId()).thenReturn(1L);
+        when(requestContentRepository.findMaxPendingId()).thenReturn(4L);
+        when(requestContentRepository.findPendingChunk(0L, 2L, Limit.of(2)))
+                .thenReturn(List.of(requestContent(1L, "1", sampleJsonString), requestContent(2L, "2", sampleJsonString)));
+        when(requestContentRepository.findPendingChunk(2L, 2L, Limit.of(2)))
+                .thenReturn(List.of());
+        when(requestContentRepository.findPendingChunk(2L, 4L, Limit.of(2)))
+                .thenReturn(List.of(requestContent(4L, "4", sampleJsonString)));
+
+        parallelService.processAllRequests();
+
+        verify(requestContentParser, times(3)).parse(sampleJsonString);
+        assertEquals(3, meterRegistry.counter("processing.requests",
+                "mode", "parallel", "outcome", "processed").count());
+    }
+
+    @Test
+    void processAllRequests_shouldIsolatePartitionFailures() throws Exception {
+        RequestProcessingService parallelService = service(2);
+        when(requestContentRepository.findMinPendingId()).thenReturn(1L);
+        when(requestContentRepository.findMaxPendingId()).thenReturn(4L);
+        when(requestContentRepository.findPendingChunk(0L, 2L, Limit.of(2)))
+                .thenThrow(new IllegalStateException("connection reset"));
+        when(requestContentRepository.findPendingChunk(2L, 4L, Limit.of(2)))
+                .thenReturn(List.of(requestContent(3L, "3", sampleJsonString)));
+
+        parallelService.processAllRequests();
+
+        verify(requestContentParser).parse(sampleJsonString);
+        assertEquals(1, meterRegistry.counter("processing.partitions.failed").count());
+    }
+
+    @Test
+    void idRange_shouldCoverWholeRangeWithoutOverlap() {
+        List<RequestProcessingService.IdRange> ranges = RequestProcessingService.IdRange.split(0, 10, 3);
+
+        assertEquals(3, ranges.size());
+        assertEquals(0, ranges.get(0).afterId());
+        assertEquals(ranges.get(0).toId(), ranges.get(1).afterId());
+        assertEquals(ranges.get(1).toId(), ranges.get(2).afterId());
+        assertEquals(10, ranges.get(2).toId());
+        assertEquals(1, RequestProcessingService.IdRange.split(4, 5, 8).size());
+    }
+
+    @Test
+    void processAllRequests_shouldProcessClaimedRangesAndCompleteThem() throws Exception {
+        RequestProcessingService claimingService = service(1, true);
+        when(requestContentRepository.findMinPendingId()).thenReturn(1L);
+        when(requestContentRepository.findMaxPendingId()).thenReturn(4L);
+        when(processingClaimService.joinOrStartRun(0L, 4L, 2)).thenReturn("run-1");
+        ProcessingClaim claim = new ProcessingClaim(10L, "run-1", 2L, 4L, "node", null, null, 1);
+        when(processingClaimService.claimNext("run-1")).thenReturn(Optional.of(claim), Optional.empty());
+        when(requestContentRepository.findPendingChunk(2L, 4L, Limit.of(2)))
+                .thenReturn(List.of(requestContent(3L, "3", sampleJsonString)));
+
+        claimingService.processAllRequests();
+
+        verify(requestContentParser).parse(sampleJsonString);
+        verify(processingClaimService).complete(claim);
+    }
+
+    @Test
+    void processAllRequests_shouldReleaseFailedClaim() {
+        RequestProcessingService claimingService = service(1, true);
+        when(requestContentRepository.findMinPendingId()).thenReturn(1L);
+        when(requestContentRepository.findMaxPendingId()).thenReturn(4L);
+        when(processingClaimService.joinOrStartRun(0L, 4L, 2)).thenReturn("run-1");
+        ProcessingClaim claim = new ProcessingClaim(10L, "run-1", 0L, 4L, "node", null, null, 1);
+        when(processingClaimService.claimNext("run-1")).thenReturn(Optional.of(claim), Optional.empty());
+        when(requestContentRepository.findPendingChunk(0L, 4L, Limit.of(2)))
+                .thenThrow(new IllegalStateException("connection reset"));
+
+        claimingService.processAllRequests();
+
+        verify(processingClaimService, never()).complete(any());
+        verify(processingClaimService).release(claim);
+        assertEquals(1, meterRegistry.counter("processing.partitions.failed").count());
+    }
+
+    @Test
+    void processAllRequests_shouldWaitForClaimsLeasedByOtherNodes() {
+        RequestProcessingService claimingService = service(1, true);
+        when(requestContentRepository.findMinPendingId()).thenReturn(1L);
+        when(requestContentRepository.findMaxPendingId()).thenReturn(4L);
+        when(processingClaimService.joinOrStartRun(0L, 4L, 2)).thenReturn("run-1");
+        when(processingClaimService.getPollInterval()).thenReturn(Duration.ofMillis(1));
+        // Порцию держит упавший узел: свободных нет, пока не истечет аренда
+        ProcessingClaim claim = new ProcessingClaim(10L, "run-1", 0L, 4L, "node", null, null, 2);
+        when(processingClaimService.claimNext("run-1"))
+                .thenReturn(Optional.empty(), Optional.empty(), Optional.of(claim), Optional.empty());
+        when(processingClaimService.hasIncomplete("run-1")).thenReturn(true, true, false);
+        when(requestContentRepository.findPendingChunk(0L, 4L, Limit.of(2))).thenReturn(List.of());
+
+        claimingService.processAllRequests();
+
+        verify(processingClaimService, times(4)).claimNext("run-1");
+        verify(processingClaimService).complete(claim);
+    }
+
+    private RequestProcessingService service(int parallelism) {
+        return service(parallelism, false);
+    }
+
+    private RequestProcessingService service(int parallelism, boolean claims) {
+        return new RequestProcessingService(requestContentRepository, regPersonRepository,
+                verifiedNameRepository, accountInfoRepository, requestContentParser, eventPublisher,
+                new ProcessingProperties(2, parallelism, new ProcessingProperties.Claim(claims, Duration.ofMinutes(5),
+                        null, 3, Duration.ofMillis(1))),
+                new TransactionTemplate(transactionManager), entityManager, meterRegistry, processingClaimService,
+                stopFactorResultService);
+    }
+
+    private static RequestContent requestContent(Long id, String loanRequestId, String content) {
+        RequestContent request = new RequestContent();
+        request.setId(id);
+        request.setLoanRequestId(loanRequestId);
+        request.setContent(content);
+        return request;
+    }
+
+    @Test
+    void processRequest_shouldStoreOriginalContentAndAccounts() {
+        String json = """
+                {
+                  "loanRequestID": "777",
+                  "creditBureau": {
+                    "verified_name": {"first_name": "SOLOMON", "other_name": "RAORE", "surname": "AWICH"},
+                    "account_info": [
+                      {"account_number": "A-1", "current_balance": 1500.50, "date_opened": "2021-03-15"},
+                      {"account_number": "A-2", "days_in_arrears": "12", "is_your_account": true}
+                    ]
+                  }
+                }""";
+        when(accountInfoRepository.existsByLoanRequestId("777")).thenReturn(false);
+
+        requestProcessingService.processRequest(json);
+
+        verify(requestContentRepository).insertIfAbsent(eq("777"), eq(json), any());
+        verify(verifiedNameRepository).insertIfAbsent("777", "SOLOMON", "RAORE", "AWICH");
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<AccountInfo>> accountsCaptor = ArgumentCaptor.forClass(List.class);
+        verify(accountInfoRepository).saveAll(accountsCaptor.capture());
+        List<AccountInfo> accounts = accountsCaptor.getValue();
+        assertEquals(List.of("A-1", "A-2"), accounts.stream().map(AccountInfo::getAccountNumber).toList());
+        assertEquals("777", accounts.get(1).getLoanRequestId());
+        verify(accountInfoRepository, never()).save(any());
+        verify(regPersonRepository, never()).insertIfAbsent(any(), any(), any(), any());
+    }
+
+    @Test
+    void processRequest_shouldSkipAccountsWhenAlreadyStored() {
+        String json = """
+                {"loanRequestID": "777", "creditBureau": {"account_info": [{"account_number": "A-1"}]}}""";
+        when(accountInfoRepository.existsByLoanRequestId("777")).thenReturn(true);
+
+        requestProcessingService.processRequest(json);
+
+        verify(accountInfoRepository, never()).saveAll(any());
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,219 @@
+package ru.artq.testfintechiq.service;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.actuate.autoconfigure.metrics.MetricsAutoConfiguration;
+import org.springframework.boot.actuate.autoconfigure.metrics.export.simple.SimpleMetricsExportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+import ru.artq.testfintechiq.config.ProcessingProperties;
+import ru.artq.testfintechiq.config.StopFactorProperties;
+import ru.artq.testfintechiq.model.Settings;
+import ru.artq.testfintechiq.model.ProcessingStatus;
+import ru.artq.testfintechiq.model.RequestContent;
+import ru.artq.testfintechiq.model.StopFactorResult;
+import ru.artq.testfintechiq.repository.AccountInfoRepository;
+import ru.artq.testfintechiq.repository.RegPersonRepository;
+import ru.artq.testfintechiq.repository.RequestContentRepository;
+import ru.artq.testfintechiq.repository.SettingsRepository;
+import ru.artq.testfintechiq.repository.StopFactorResultRepository;
+import ru.artq.testfintechiq.repository.VerifiedNameRepository;
+
+import java.time.OffsetDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Количество JDBC-запросов на один обработанный запрос и идемпотентность повторной обработки.
+ * H2 в режиме PostgreSQL, схема создается Hibernate с теми же последовательностями,
+ * что и в миграциях (шаг 50).
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ImportAutoConfiguration({JacksonAutoConfiguration.class, MetricsAutoConfiguration.class,
+        SimpleMetricsExportAutoConfiguration.class})
+@Import({RequestProcessingService.class, RequestContentParser.class, ProcessingClaimService.class,
+        StopFactorResultService.class, LevenshteinService.class, SettingsService.class, StopFactorCache.class,
+        StopFactorRecomputeService.class})
+@EnableConfigurationProperties({ProcessingProperties.class, StopFactorProperties.class})
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:statements;MODE=PostgreSQL;NON_KEYWORDS=VALUE;INIT=CREATE DOMAIN IF NOT EXISTS JSONB AS JSON",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.liquibase.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "processing.chunk-size=2",
+        "processing.claim.enabled=false",
+        "stop-factor.recompute.batch-size=2",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "logging.level.org.hibernate.engine.internal.StatisticalLoggingSessionEventListener=warn"
+})
+public class RequestProcessingStatementCountTest {
+
+    private static final int ACCOUNTS = 200;
+
+    @Autowired
+    private RequestProcessingService requestProcessingService;
+
+    @Autowired
+    private AccountInfoRepository accountInfoRepository;
+
+    @Autowired
+    private RequestContentRepository requestContentRepository;
+
+    @Autowired
+    private RegPersonRepository regPersonRepository;
+
+    @Autowired
+    private VerifiedNameRepository verifiedNameRepository;
+
+    @Autowired
+    private StopFactorResultRepository stopFactorResultRepository;
+
+    @Autowired
+    private SettingsRepository settingsRepository;
+
+    @Autowired
+    private StopFactorRecomputeService stopFactorRecomputeService;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        settingsRepository.save(new Settings(null, "distanceRatioThreshold", "0.9"));
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void processRequest_shouldBatchAccountInserts() {
+        requestProcessingService.processRequest(bureauReport("batch-1"));
+        entityManager.flush();
+
+        long statements = statistics.getPrepareStatementCount();
+        entityManager.clear();
+        assertEquals(ACCOUNTS, accountInfoRepository.findAllByLoanRequestId("batch-1").size());
+
+        // Вставки с ON CONFLICT, блокировка заявки, проверка счетов, запросы к последовательности
+        // (account_info - по одному на 50 id) и пакеты вставок вместо 200 отдельных INSERT
+        assertTrue(statements <= 20, "Too many statements per request: " + statements);
+    }
+
+    @Test
+    void processRequest_shouldBeIdempotent() {
+        requestProcessingService.processRequest(bureauReport("batch-2"));
+        requestProcessingService.processRequest(bureauReport("batch-2"));
+        entityManager.flush();
+        entityManager.clear();
+
+        assertEquals(1, requestContentRepository.count());
+        assertEquals(1, regPersonRepository.count());
+        assertEquals(1, verifiedNameRepository.count());
+        assertEquals(ACCOUNTS, accountInfoRepository.findAllByLoanRequestId("batch-2").size());
+        assertEquals(1, stopFactorResultRepository.count());
+    }
+
+    @Test
+    void processRequest_shouldStoreBestMatch() {
+        requestProcessingService.processRequest(bureauReport("result-1"));
+        entityManager.flush();
+        entityManager.clear();
+
+        StopFactorResult result = stopFactorResultRepository.findByLoanRequestId("result-1").orElseThrow();
+        assertEquals(1.0, result.getBestRatio());
+        assertEquals("solomonawich", result.getRegPersonCombination());
+        assertEquals("solomonawich", result.getVerifiedNameCombination());
+        assertTrue(result.isStopFactor());
+    }
+
+    @Test
+    void processAllRequests_shouldProcessEveryChunk() {
+        for (int i = 1; i <= 5; i++) {
+            RequestContent request = new RequestContent();
+            request.setLoanRequestId("chunk-" + i);
+            request.setContent(bureauReport("chunk-" + i));
+            request.setCreatedAt(OffsetDateTime.now());
+            requestContentRepository.save(request);
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        requestProcessingService.processAllRequests();
+        entityManager.flush();
+        entityManager.clear();
+
+        assertEquals(5, regPersonRepository.count());
+        assertEquals(5, verifiedNameRepository.count());
+        assertEquals(ACCOUNTS, accountInfoRepository.findAllByLoanRequestId("chunk-5").size());
+        assertTrue(requestContentRepository.findAll().stream()
+                .allMatch(request -> request.getProcessingStatus() == ProcessingStatus.PROCESSED));
+    }
+
+    @Test
+    void processAllRequests_shouldSkipProcessedRequests() {
+        requestProcessingService.processRequest(bureauReport("done-1"));
+        entityManager.flush();
+        entityManager.clear();
+        statistics.clear();
+
+        requestProcessingService.processAllRequests();
+
+        // Только запрос минимального id необработанных: строк нет, порции не читаются
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(ProcessingStatus.PROCESSED,
+                requestContentRepository.findByLoanRequestId("done-1").getProcessingStatus());
+    }
+
+    @Test
+    void recompute_shouldRewriteAndFillMissingResults() {
+        for (int i = 1; i <= 3; i++) {
+            requestProcessingService.processRequest(bureauReport("recompute-" + i));
+        }
+        entityManager.flush();
+        stopFactorResultRepository.delete(stopFactorResultRepository.findByLoanRequestId("recompute-2").orElseThrow());
+        entityManager.flush();
+        entityManager.clear();
+
+        stopFactorRecomputeService.recompute();
+
+        StopFactorRecomputeService.Progress progress = stopFactorRecomputeService.getProgress();
+        assertEquals(StopFactorRecomputeService.State.COMPLETED, progress.state(), progress.error());
+        assertEquals(3, progress.scored());
+        assertEquals(3, progress.stopFactors());
+        assertEquals(3, stopFactorResultRepository.count());
+        assertEquals(1.0, stopFactorResultRepository.findByLoanRequestId("recompute-2").orElseThrow().getBestRatio());
+    }
+
+    private static String bureauReport(String loanRequestId) {
+        StringBuilder json = new StringBuilder()
+                .append("{\"loanRequestID\": \"").append(loanRequestId).append("\",")
+                .append("\"regPerson\": {\"firstName\": \"Solomon\", \"lastName\": \"Awich\"},")
+                .append("\"creditBureau\": {")
+                .append("\"verified_name\": {\"first_name\": \"SOLOMON\", \"other_name\": \"RAORE\", \"surname\": \"AWICH\"},")
+                .append("\"account_info\": [");
+        for (int i = 0; i < ACCOUNTS; i++) {
+            if (i > 0) json.append(',');
+            json.append("{\"account_number\": \"").append(i).append("\", \"current_balance\": \"10.50000\",")
+                    .append(" \"date_opened\": \"2020-04-14\", \"days_in_arrears\": 0, \"is_your_account\": false}");
+        }
+        return json.append("]}}").toString();
+    }
+}
@@ -1,14 +1,19 @@
 package ru.artq.testfintechiq.service;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import ru.artq.testfintechiq.model.Settings;
 import ru.artq.testfintechiq.repository.SettingsRepository;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -17,6 +22,9 @@ public class SettingsServiceTest {
     @Mock
     private SettingsRepository settingsRepository;
 
+    @Spy
+    private SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
     @InjectMocks
     private SettingsService settingsService;
 
@@ -31,4 +39,52 @@ public class SettingsServiceTest {
 
         assertEquals(0.9, result);
     }
-} 
\ No newline at end of file
+
+    @Test
+    void getSnapshot_shouldQueryDatabaseOnlyOnce() {
+        when(settingsRepository.findByName("distanceRatioThreshold")).thenReturn(settings("0.9"));
+
+        SettingsSnapshot first = settingsService.getSnapshot();
+        SettingsSnapshot second = settingsService.getSnapshot();
+        settingsService.getDistanceRatioThreshold();
+
+        assertSame(first, second);
+        assertEquals(1, first.version());
+        verify(settingsRepository, times(1)).findByName("distanceRatioThreshold");
+        assertEquals(3, meterRegistry.get("settings.lookups").counter().count());
+        assertEquals(1, meterRegistry.get("settings.refresh").timer().count());
+    }
+
+    @Test
+    void refresh_shouldIncrementVersionOnlyWhenValueChanges() {
+        when(settingsRepository.findByName("distanceRatioThreshold"))
+                .thenReturn(settings("0.9"), settings("0.9"), settings("0.8"));
+
+        assertEquals(1, settingsService.refresh().version());
+        assertEquals(1, settingsService.refresh().version());
+
+        SettingsSnapshot changed = settingsService.refresh();
+        assertEquals(2, changed.version());
+        assertEquals(0.8, changed.distanceRatioThreshold());
+        assertSame(changed, settingsService.getSnapshot());
+    }
+
+    @Test
+    void scheduledRefresh_shouldKeepSnapshotWhenDatabaseFails() {
+        when(settingsRepository.findByName("distanceRatioThreshold"))
+                .thenReturn(settings("0.9"))
+                .thenThrow(new IllegalStateException("connection refused"));
+
+        SettingsSnapshot loaded = settingsService.getSnapshot();
+        settingsService.scheduledRefresh();
+
+        assertSame(loaded, settingsService.getSnapshot());
+    }
+
+    private static Settings settings(String value) {
+        Settings settings = new Settings();
+        settings.setName("distanceRatioThreshold");
+        settings.setValue(value);
+        return settings;
+    }
+}
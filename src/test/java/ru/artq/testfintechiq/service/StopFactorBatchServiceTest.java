@@ -0,0 +1,191 @@
+package ru.artq.testfintechiq.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import ru.artq.testfintechiq.config.StopFactorProperties;
+import ru.artq.testfintechiq.config.StopFactorPropertiesFixtures;
+import ru.artq.testfintechiq.dto.StopFactorRequest;
+import ru.artq.testfintechiq.dto.StopFactorResponse;
+import ru.artq.testfintechiq.exception.BadRequestException;
+
+import java.io.ByteArrayOutputStream;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class StopFactorBatchServiceTest {
+
+    @Mock
+    private LevenshteinService levenshteinService;
+
+    private StopFactorBatchService batchService;
+
+    @BeforeEach
+    void setUp() {
+        StopFactorProperties properties = StopFactorPropertiesFixtures.defaults().batch(100, 4, 16).build();
+        batchService = new StopFactorBatchService(levenshteinService, new ObjectMapper(), properties);
+    }
+
+    @AfterEach
+    void tearDown() {
+        batchService.shutdown();
+    }
+
+    @Test
+    void calculateStopFactors_shouldKeepInputOrder() throws Exception {
+        // Четные пары считаются медленнее, чтобы результаты готовились не по порядку
+        when(levenshteinService.calculateStopFactor(anyString(), anyString())).thenAnswer(invocation -> {
+            int index = Integer.parseInt(invocation.getArgument(0));
+            if (index % 2 == 0) Thread.sleep(5);
+            return index % 3 == 0;
+        });
+
+        List<StopFactorRequest> requests = new ArrayList<>();
+        StringBuilder expected = new StringBuilder("[");
+        for (int i = 0; i < 50; i++) {
+            requests.add(new StopFactorRequest(String.valueOf(i), "name"));
+            if (i > 0) expected.append(',');
+            expected.append("{\"stopFactor\":").append(i % 3 == 0).append('}');
+        }
+        expected.append(']');
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        batchService.calculateStopFactors(requests, out);
+
+        assertEquals(expected.toString(), out.toString());
+    }
+
+    @Test
+    void calculateStopFactors_shouldReturnFalseForNullRequest() throws Exception {
+        List<StopFactorRequest> requests = new ArrayList<>();
+        requests.add(null);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        batchService.calculateStopFactors(requests, out);
+
+        assertEquals("[{\"stopFactor\":false}]", out.toString());
+    }
+
+    @Test
+    void calculateStopFactors_shouldEndWithErrorElementWhenCalculationFails() throws Exception {
+        when(levenshteinService.calculateStopFactor(anyString(), anyString())).thenAnswer(invocation -> {
+            if (invocation.getArgument(0).equals("2")) throw new IllegalArgumentException("broken name");
+            return true;
+        });
+        List<StopFactorRequest> requests = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            requests.add(new StopFactorRequest(String.valueOf(i), "name"));
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        batchService.calculateStopFactors(requests, out);
+
+        // Массив закрыт и разбирается как JSON: два результата и ошибка того же типа вместо остальных
+        List<StopFactorResponse> result = readResponses(out);
+        assertEquals(3, result.size());
+        assertEquals(new StopFactorResponse(true), result.get(1));
+        assertEquals(StopFactorResponse.failed("Batch stop factor calculation failed: broken name"), result.get(2));
+    }
+
+    @Test
+    void calculateStopFactors_shouldEndWithErrorWhenPoolIsShutDown() throws Exception {
+        batchService.shutdown();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        batchService.calculateStopFactors(List.of(new StopFactorRequest("a", "b")), out);
+
+        assertEquals(List.of(StopFactorResponse.failed("Stop factor pool is shut down")), readResponses(out));
+    }
+
+    @Test
+    void calculateStopFactors_shouldCancelQueuedTasksOnShutdown() throws Exception {
+        StopFactorBatchService singleThreaded = new StopFactorBatchService(levenshteinService, new ObjectMapper(),
+                StopFactorPropertiesFixtures.defaults().batch(100, 1, 16).build());
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        // Первая пара занимает единственный поток и не реагирует на прерывание, вторая ждет в очереди
+        when(levenshteinService.calculateStopFactor(anyString(), anyString())).thenAnswer(invocation -> {
+            started.countDown();
+            while (true) {
+                try {
+                    release.await();
+                    return true;
+                } catch (InterruptedException ignored) {
+                    // прерывание от shutdownNow не должно обрывать первую пару
+                }
+            }
+        });
+        ExecutorService client = Executors.newSingleThreadExecutor();
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            Future<?> batch = client.submit(() -> {
+                singleThreaded.calculateStopFactors(List.of(new StopFactorRequest("0", "name"),
+                        new StopFactorRequest("1", "name")), out);
+                return null;
+            });
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+
+            singleThreaded.shutdown();
+            release.countDown();
+            batch.get(5, TimeUnit.SECONDS);
+
+            assertEquals(List.of(new StopFactorResponse(true),
+                            StopFactorResponse.failed("Batch stop factor calculation cancelled")),
+                    readResponses(out));
+        } finally {
+            client.shutdownNow();
+        }
+    }
+
+    @Test
+    void calculateStopFactors_shouldEndWithErrorWhenResultIsLate() throws Exception {
+        StopFactorBatchService impatient = new StopFactorBatchService(levenshteinService, new ObjectMapper(),
+                StopFactorPropertiesFixtures.defaults().taskTimeout(Duration.ofMillis(50)).build());
+        when(levenshteinService.calculateStopFactor(anyString(), anyString())).thenAnswer(invocation -> {
+            Thread.sleep(5_000);
+            return true;
+        });
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            impatient.calculateStopFactors(List.of(new StopFactorRequest("a", "b")), out);
+
+            assertEquals(List.of(StopFactorResponse.failed("Batch stop factor calculation timed out after 50 ms")),
+                    readResponses(out));
+        } finally {
+            impatient.shutdown();
+        }
+    }
+
+    private static List<StopFactorResponse> readResponses(ByteArrayOutputStream out) throws Exception {
+        return new ObjectMapper().readValue(out.toString(), new TypeReference<>() {
+        });
+    }
+
+    @Test
+    void validateBatch_shouldRejectEmptyAndOversizedBatches() {
+        List<StopFactorRequest> oversized = new ArrayList<>();
+        for (int i = 0; i < 101; i++) {
+            oversized.add(new StopFactorRequest("a", "b"));
+        }
+
+        assertThrows(BadRequestException.class, () -> batchService.validateBatch(List.of()));
+        assertThrows(BadRequestException.class, () -> batchService.validateBatch(oversized));
+        assertDoesNotThrow(() -> batchService.validateBatch(oversized.subList(0, 100)));
+    }
+}
@@ -0,0 +1,98 @@
+package ru.artq.testfintechiq.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.artq.testfintechiq.config.StopFactorProperties;
+import ru.artq.testfintechiq.config.StopFactorPropertiesFixtures;
+import ru.artq.testfintechiq.dto.LoanNames;
+import ru.artq.testfintechiq.matching.CombinationScorer;
+import ru.artq.testfintechiq.matching.NameFingerprint;
+import ru.artq.testfintechiq.repository.RegPersonRepository;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class StopFactorRecomputeServiceTest {
+
+    @Mock
+    private RegPersonRepository regPersonRepository;
+
+    @Mock
+    private LevenshteinService levenshteinService;
+
+    @Mock
+    private SettingsService settingsService;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private StopFactorRecomputeService stopFactorRecomputeService;
+
+    @BeforeEach
+    void setUp() {
+        stopFactorRecomputeService = new StopFactorRecomputeService(regPersonRepository, levenshteinService,
+                settingsService, jdbcTemplate, new TransactionTemplate(transactionManager),
+                StopFactorPropertiesFixtures.defaults().recompute(2, 2).build());
+        when(settingsService.getSnapshot()).thenReturn(new SettingsSnapshot(0.9, 1, Instant.now()));
+    }
+
+    @Test
+    void recompute_shouldReadPagesAndWriteInBatches() {
+        when(regPersonRepository.findLoanNames(0L, Limit.of(2))).thenReturn(List.of(
+                names(1L, "a", "Solomon Awich"), names(2L, "b", "Isaac Ogada")));
+        when(regPersonRepository.findLoanNames(2L, Limit.of(2))).thenReturn(List.of(names(5L, "c", "Ivan Petrov")));
+        when(levenshteinService.calculateBestMatch(any(NameFingerprint.class), any(NameFingerprint.class)))
+                .thenReturn(new CombinationScorer.Match(0.95, "x", "y"));
+        // Первой порции нет результата для "b", второй - для "c"
+        when(jdbcTemplate.batchUpdate(startsWith("UPDATE"), anyCollection(), anyInt(), any()))
+                .thenReturn(new int[][]{{1, 0}}, new int[][]{{0}});
+
+        stopFactorRecomputeService.recompute();
+
+        StopFactorRecomputeService.Progress progress = stopFactorRecomputeService.getProgress();
+        assertEquals(StopFactorRecomputeService.State.COMPLETED, progress.state());
+        assertEquals(3, progress.scored());
+        assertEquals(3, progress.stopFactors());
+        verify(regPersonRepository, never()).findLoanNames(eq(5L), any());
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Collection<Object>> inserted = ArgumentCaptor.forClass(Collection.class);
+        verify(jdbcTemplate, times(2)).batchUpdate(startsWith("INSERT"), inserted.capture(), anyInt(),
+                any(ParameterizedPreparedStatementSetter.class));
+        assertEquals(List.of(1, 1), inserted.getAllValues().stream().map(Collection::size).toList());
+    }
+
+    @Test
+    void recompute_shouldReportFailure() {
+        when(regPersonRepository.findLoanNames(0L, Limit.of(2))).thenThrow(new IllegalStateException("connection reset"));
+
+        stopFactorRecomputeService.recompute();
+
+        assertEquals(StopFactorRecomputeService.State.FAILED, stopFactorRecomputeService.getProgress().state());
+        assertEquals("connection reset", stopFactorRecomputeService.getProgress().error());
+    }
+
+    private static LoanNames names(Long id, String loanRequestId, String name) {
+        String[] parts = name.split(" ");
+        return new LoanNames(id, loanRequestId, parts[0], null, parts[1],
+                parts[0].toUpperCase(), null, parts[1].toUpperCase());
+    }
+}
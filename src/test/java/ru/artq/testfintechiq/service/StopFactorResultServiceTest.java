@@ -0,0 +1,179 @@
+package ru.artq.testfintechiq.service;
+
+import jakarta.persistence.EntityNotFoundException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+import ru.artq.testfintechiq.config.StopFactorProperties;
+import ru.artq.testfintechiq.config.StopFactorPropertiesFixtures;
+import ru.artq.testfintechiq.dto.StopFactorExplanation;
+import ru.artq.testfintechiq.dto.StopFactorResultResponse;
+import ru.artq.testfintechiq.matching.CombinationScorer;
+import ru.artq.testfintechiq.matching.NameFingerprint;
+import ru.artq.testfintechiq.model.RegPerson;
+import ru.artq.testfintechiq.model.StopFactorResult;
+import ru.artq.testfintechiq.model.VerifiedName;
+import ru.artq.testfintechiq.repository.RegPersonRepository;
+import ru.artq.testfintechiq.repository.StopFactorResultRepository;
+import ru.artq.testfintechiq.repository.VerifiedNameRepository;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class StopFactorResultServiceTest {
+
+    @Mock
+    private StopFactorResultRepository stopFactorResultRepository;
+
+    @Mock
+    private LevenshteinService levenshteinService;
+
+    @Mock
+    private SettingsService settingsService;
+
+    @Mock
+    private RegPersonRepository regPersonRepository;
+
+    @Mock
+    private VerifiedNameRepository verifiedNameRepository;
+
+    @Spy
+    private StopFactorProperties stopFactorProperties = properties(0);
+
+    @InjectMocks
+    private StopFactorResultService stopFactorResultService;
+
+    @Test
+    void record_shouldStoreBestMatchWithCurrentThreshold() {
+        when(settingsService.getSnapshot()).thenReturn(new SettingsSnapshot(0.9, 1, Instant.now()));
+        when(levenshteinService.calculateBestMatch(any(NameFingerprint.class), any(NameFingerprint.class)))
+                .thenReturn(new CombinationScorer.Match(0.85, "isaacogada", "isakogada"));
+        RegPerson regPerson = new RegPerson();
+        regPerson.setFirstName("Isaac");
+        regPerson.setLastName("Ogada");
+        VerifiedName verifiedName = new VerifiedName();
+        verifiedName.setFirstName("ISAK");
+        verifiedName.setSurname("OGADA");
+
+        stopFactorResultService.record("42", regPerson, verifiedName);
+
+        verify(stopFactorResultRepository).insertIfAbsent(eq("42"), eq(0.85), eq("isaacogada"), eq("isakogada"),
+                eq(0.9), eq(false), any());
+    }
+
+    @Test
+    void record_shouldSkipMissingNames() {
+        stopFactorResultService.record("42", null, new VerifiedName());
+
+        verifyNoInteractions(stopFactorResultRepository, levenshteinService);
+    }
+
+    @Test
+    void get_shouldEvaluateStoredRatioAgainstCurrentThreshold() {
+        when(settingsService.getSnapshot()).thenReturn(new SettingsSnapshot(0.8, 2, Instant.now()));
+        when(stopFactorResultRepository.findByLoanRequestId("42")).thenReturn(Optional.of(
+                new StopFactorResult(1L, "42", 0.85, "isaacogada", "isakogada", 0.9, false, OffsetDateTime.now())));
+
+        StopFactorResultResponse response = stopFactorResultService.get("42");
+
+        // Сохранен при пороге 0.9, но порог снижен до 0.8
+        assertTrue(response.isStopFactor());
+        assertEquals(0.8, response.getThreshold());
+        assertEquals(0.85, response.getBestRatio());
+    }
+
+    @Test
+    void get_shouldThrowWhenResultIsMissing() {
+        when(stopFactorResultRepository.findByLoanRequestId("missing")).thenReturn(Optional.empty());
+
+        assertThrows(EntityNotFoundException.class, () -> stopFactorResultService.get("missing"));
+    }
+
+    @Test
+    void findStopFactors_shouldQueryByRatio() {
+        when(stopFactorResultRepository.findByBestRatioGreaterThanEqualOrderByBestRatioDescIdAsc(0.75, Limit.of(10)))
+                .thenReturn(List.of(new StopFactorResult(1L, "42", 0.85, "a", "b", 0.9, false, null)));
+
+        List<StopFactorResultResponse> results = stopFactorResultService.findStopFactors(0.75, 10);
+
+        assertEquals(1, results.size());
+        assertTrue(results.get(0).isStopFactor());
+        verifyNoInteractions(settingsService);
+    }
+
+    @Test
+    void record_shouldTraceSampledRequests() {
+        stopFactorResultService = new StopFactorResultService(stopFactorResultRepository, levenshteinService,
+                settingsService, regPersonRepository, verifiedNameRepository, properties(1.0));
+        when(settingsService.getSnapshot()).thenReturn(new SettingsSnapshot(0.9, 1, Instant.now()));
+        when(levenshteinService.calculateBestMatch(any(NameFingerprint.class), any(NameFingerprint.class)))
+                .thenReturn(new CombinationScorer.Match(1.0, "isaacogada", "isaacogada"));
+        when(levenshteinService.explain(any(NameFingerprint.class), any(NameFingerprint.class)))
+                .thenReturn(new StopFactorExplanation("isaac ogada", "isaac ogada",
+                        StopFactorExplanation.Reason.EQUAL_NAMES, 1.0, 0.9, true, false, List.of()));
+
+        stopFactorResultService.record("42", regPerson("Isaac", "Ogada"), verifiedName("ISAAC", "OGADA"));
+
+        verify(levenshteinService).explain(any(NameFingerprint.class), any(NameFingerprint.class));
+    }
+
+    @Test
+    void record_shouldNotExplainWhenTraceIsDisabled() {
+        when(settingsService.getSnapshot()).thenReturn(new SettingsSnapshot(0.9, 1, Instant.now()));
+        when(levenshteinService.calculateBestMatch(any(NameFingerprint.class), any(NameFingerprint.class)))
+                .thenReturn(new CombinationScorer.Match(1.0, "isaacogada", "isaacogada"));
+
+        stopFactorResultService.record("42", regPerson("Isaac", "Ogada"), verifiedName("ISAAC", "OGADA"));
+
+        verify(levenshteinService, never()).explain(any(), any());
+    }
+
+    @Test
+    void explain_shouldUseStoredNames() {
+        when(regPersonRepository.findByLoanRequestId("42")).thenReturn(regPerson("Isaac", "Ogada"));
+        when(verifiedNameRepository.findByLoanRequestId("42")).thenReturn(verifiedName("ISAK", "OGADA"));
+        StopFactorExplanation explanation = new StopFactorExplanation("isaac ogada", "isak ogada",
+                StopFactorExplanation.Reason.PAIR_ABOVE_THRESHOLD, 0.9, 0.9, true, false, List.of());
+        when(levenshteinService.explain(NameFingerprint.of("Isaac Ogada"), NameFingerprint.of("ISAK OGADA")))
+                .thenReturn(explanation);
+
+        assertSame(explanation, stopFactorResultService.explain("42"));
+    }
+
+    @Test
+    void explain_shouldThrowWhenNamesAreMissing() {
+        when(regPersonRepository.findByLoanRequestId("missing")).thenReturn(null);
+
+        assertThrows(EntityNotFoundException.class, () -> stopFactorResultService.explain("missing"));
+    }
+
+    private static RegPerson regPerson(String firstName, String lastName) {
+        RegPerson regPerson = new RegPerson();
+        regPerson.setFirstName(firstName);
+        regPerson.setLastName(lastName);
+        return regPerson;
+    }
+
+    private static VerifiedName verifiedName(String firstName, String surname) {
+        VerifiedName verifiedName = new VerifiedName();
+        verifiedName.setFirstName(firstName);
+        verifiedName.setSurname(surname);
+        return verifiedName;
+    }
+
+    private static StopFactorProperties properties(double sampleRate) {
+        return StopFactorPropertiesFixtures.defaults().sampleRate(sampleRate).build();
+    }
+}
@@ -0,0 +1,127 @@
+package ru.artq.testfintechiq.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import ru.artq.testfintechiq.config.StopFactorProperties;
+import ru.artq.testfintechiq.config.StopFactorPropertiesFixtures;
+import ru.artq.testfintechiq.dto.WatchlistMatch;
+import ru.artq.testfintechiq.exception.BadRequestException;
+import ru.artq.testfintechiq.model.VerifiedName;
+import ru.artq.testfintechiq.repository.VerifiedNameRepository;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class WatchlistServiceTest {
+
+    @Mock
+    private VerifiedNameRepository verifiedNameRepository;
+
+    @Mock
+    private SettingsService settingsService;
+
+    private WatchlistService watchlistService;
+
+    @BeforeEach
+    void setUp() {
+        watchlistService = new WatchlistService(verifiedNameRepository, settingsService,
+                new StringConcatenationService());
+        lenient().when(settingsService.getSnapshot()).thenReturn(new SettingsSnapshot(0.9, 1, Instant.now()));
+    }
+
+    @Test
+    void loadIndex_shouldIndexStoredNames() {
+        when(verifiedNameRepository.findAll()).thenReturn(List.of(
+                verifiedName("1", "ISAAC", "ABRAHAM", "OGADA"),
+                verifiedName("2", "SOLOMON", "RAORE", "AWICH"),
+                verifiedName("3", null, null, null)));
+
+        watchlistService.loadIndex();
+
+        assertEquals(2, watchlistService.size());
+    }
+
+    @Test
+    void search_shouldFindSimilarAndReorderedNames() {
+        watchlistService.add(verifiedName("1", "ISAAC", "ABRAHAM", "OGADA"));
+        watchlistService.add(verifiedName("2", "OGADA", null, "ISAAC"));
+        watchlistService.add(verifiedName("3", "SOLOMON", "RAORE", "AWICH"));
+        watchlistService.add(verifiedName("4", "FABIAN", null, "OTIENO"));
+
+        List<WatchlistMatch> matches = watchlistService.search("Isaac Ogada", 10);
+
+        // Совпадение по паре слов и по тем же словам в другом порядке
+        assertEquals(List.of("1", "2"), matches.stream().map(WatchlistMatch::getLoanRequestId).toList());
+        assertEquals(1.0, matches.get(0).getRatio());
+        assertEquals(1.0, matches.get(1).getRatio());
+        assertEquals("ISAAC ABRAHAM OGADA", matches.get(0).getVerifiedNameString());
+
+        List<WatchlistMatch> typo = watchlistService.search("Solomon Awiche", 10);
+        assertEquals(1, typo.size());
+        assertEquals("3", typo.get(0).getLoanRequestId());
+        assertTrue(typo.get(0).getRatio() >= 0.9);
+    }
+
+    @Test
+    void search_shouldAgreeWithStopFactorOnStoredNames() {
+        LevenshteinService levenshteinService = new LevenshteinService(settingsService,
+                new StopFactorCache(properties(), new SimpleMeterRegistry()), properties(), new SimpleMeterRegistry());
+        String[] names = {"Isaac Abraham Ogada", "Isak Avraam Ogada", "Samuel Ogada", "Solomon Raore Awich",
+                "Solomon Awich", "Mwangi Kamau", "Njeri Wanjiru Kamau", "Иван Петрович Иванов", "Иванов Иван"};
+        for (int i = 0; i < names.length; i++) {
+            String[] parts = names[i].split(" ");
+            watchlistService.add(verifiedName(String.valueOf(i), parts[0], parts.length > 2 ? parts[1] : null,
+                    parts[parts.length - 1]));
+        }
+
+        for (String query : names) {
+            List<String> found = watchlistService.search(query, names.length).stream()
+                    .map(WatchlistMatch::getLoanRequestId)
+                    .sorted()
+                    .toList();
+            List<String> expected = new ArrayList<>();
+            for (int i = 0; i < names.length; i++) {
+                if (levenshteinService.calculateStopFactor(query, names[i])) expected.add(String.valueOf(i));
+            }
+            assertEquals(expected, found, query);
+        }
+    }
+
+    @Test
+    void add_shouldIgnoreDuplicateLoanRequestId() {
+        watchlistService.add(verifiedName("1", "ISAAC", null, "OGADA"));
+        watchlistService.add(verifiedName("1", "ISAAC", null, "OGADA"));
+
+        assertEquals(1, watchlistService.size());
+        assertEquals(1, watchlistService.search("Isaac Ogada", 10).size());
+    }
+
+    @Test
+    void search_shouldRejectInvalidArguments() {
+        assertThrows(BadRequestException.class, () -> watchlistService.search("  ", 10));
+        assertThrows(BadRequestException.class, () -> watchlistService.search("Isaac", 0));
+    }
+
+    private static StopFactorProperties properties() {
+        return StopFactorPropertiesFixtures.defaults().build();
+    }
+
+    private static VerifiedName verifiedName(String loanRequestId, String firstName, String otherName, String surname) {
+        VerifiedName verifiedName = new VerifiedName();
+        verifiedName.setLoanRequestId(loanRequestId);
+        verifiedName.setFirstName(firstName);
+        verifiedName.setOtherName(otherName);
+        verifiedName.setSurname(surname);
+        return verifiedName;
+    }
+}